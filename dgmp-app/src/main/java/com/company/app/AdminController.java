@@ -0,0 +1,168 @@
+package com.company.app;
+
+import com.company.validation.EpaPackageVersions;
+import com.company.validation.ObservableCachingValidationSupport;
+import com.company.validation.ProfileRouter;
+import com.company.validation.ValidationResultCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * REST Controller for operational endpoints of the validation service
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final ValidationResultCache resultCache;
+    private final ObservableCachingValidationSupport validationSupport;
+    private final EpaPackageVersions packageVersions;
+    private final ProfileRouter profileRouter;
+
+    public AdminController(ValidationResultCache resultCache,
+                           ObservableCachingValidationSupport validationSupport,
+                           EpaPackageVersions packageVersions,
+                           ProfileRouter profileRouter) {
+        this.resultCache = resultCache;
+        this.validationSupport = validationSupport;
+        this.packageVersions = packageVersions;
+        this.profileRouter = profileRouter;
+    }
+
+    /**
+     * Returns statistics of the validation result cache
+     */
+    @GetMapping("/validation-cache")
+    public ResponseEntity<CacheStatsDto> validationCacheStats() {
+        return ResponseEntity.ok(toDto(resultCache));
+    }
+
+    /**
+     * Removes all entries from the validation result cache
+     */
+    @DeleteMapping("/validation-cache")
+    public ResponseEntity<CacheStatsDto> flushValidationCache() {
+        resultCache.invalidateAll();
+        return ResponseEntity.ok(toDto(resultCache));
+    }
+
+    /**
+     * Returns statistics of the validation support caches (conformance resources and terminology) per category
+     */
+    @GetMapping("/validation-support-cache")
+    public ResponseEntity<Map<String, SupportCacheStatsDto>> validationSupportCacheStats() {
+        return ResponseEntity.ok(toDto(validationSupport));
+    }
+
+    /**
+     * Removes all entries from the validation support caches
+     */
+    @DeleteMapping("/validation-support-cache")
+    public ResponseEntity<Map<String, SupportCacheStatsDto>> flushValidationSupportCache() {
+        validationSupport.invalidateCaches();
+        return ResponseEntity.ok(toDto(validationSupport));
+    }
+
+    /**
+     * Returns the configured EPA Medication package versions and the additional versions currently loaded
+     */
+    @GetMapping("/package-versions")
+    public ResponseEntity<PackageVersionsDto> packageVersions() {
+        PackageVersionsDto dto = new PackageVersionsDto();
+        dto.defaultVersion = packageVersions.getDefaultVersion();
+        dto.additional = packageVersions.getAdditionalVersions();
+        dto.loaded = packageVersions.getLoadedVersions();
+        return ResponseEntity.ok(dto);
+    }
+
+    /**
+     * Returns the profile routes with their validator settings
+     */
+    @GetMapping("/profile-routes")
+    public ResponseEntity<List<ProfileRouteDto>> profileRoutes() {
+        List<ProfileRouteDto> dtos = new ArrayList<>();
+        for (ProfileRouter.Route route : profileRouter.getRoutes()) {
+            ProfileRouteDto dto = new ProfileRouteDto();
+            dto.profile = route.getProfile();
+            dto.poolSize = route.getPools().get(null).getSize();
+            dto.settings = route.getSettings().getKey();
+            dtos.add(dto);
+        }
+        return ResponseEntity.ok(dtos);
+    }
+
+    private Map<String, SupportCacheStatsDto> toDto(ObservableCachingValidationSupport support) {
+        Map<String, SupportCacheStatsDto> dtos = new LinkedHashMap<>();
+        for (ObservableCachingValidationSupport.Category category : ObservableCachingValidationSupport.Category.values()) {
+            CacheStats stats = support.getStats(category);
+            SupportCacheStatsDto dto = new SupportCacheStatsDto();
+            dto.maximumSize = support.getSpec(category).getMaximumSize();
+            dto.expireAfterWriteMs = support.getSpec(category).getExpireAfterWriteMillis();
+            dto.size = support.getSize(category);
+            dto.hitCount = stats.hitCount();
+            dto.missCount = stats.missCount();
+            dto.hitRate = stats.hitRate();
+            dto.evictionCount = stats.evictionCount();
+            dto.loadCount = stats.loadCount();
+            dto.averageLoadMs = stats.averageLoadPenalty() / 1_000_000.0;
+            dto.totalLoadMs = stats.totalLoadTime() / 1_000_000;
+            dtos.put(category.getName(), dto);
+        }
+        return dtos;
+    }
+
+    private CacheStatsDto toDto(ValidationResultCache cache) {
+        CacheStats stats = cache.getStats();
+        CacheStatsDto dto = new CacheStatsDto();
+        dto.enabled = cache.isEnabled();
+        dto.size = cache.getSize();
+        dto.hitCount = stats.hitCount();
+        dto.missCount = stats.missCount();
+        dto.hitRate = stats.hitRate();
+        dto.evictionCount = stats.evictionCount();
+        return dto;
+    }
+
+    // DTOs for JSON responses
+
+    public static class CacheStatsDto {
+        public boolean enabled;
+        public long size;
+        public long hitCount;
+        public long missCount;
+        public double hitRate;
+        public long evictionCount;
+    }
+
+    public static class PackageVersionsDto {
+        public String defaultVersion;
+        public Set<String> additional;
+        public Set<String> loaded;
+    }
+
+    public static class ProfileRouteDto {
+        public String profile;
+        public int poolSize;
+        public String settings;
+    }
+
+    public static class SupportCacheStatsDto {
+        public long maximumSize;
+        public long expireAfterWriteMs;
+        public long size;
+        public long hitCount;
+        public long missCount;
+        public double hitRate;
+        public long evictionCount;
+        public long loadCount;
+        public double averageLoadMs;
+        public long totalLoadMs;
+    }
+}
@@ -0,0 +1,196 @@
+package com.company.app;
+
+import com.company.validation.PayloadTooLargeException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads FHIR JSON documents one at a time from a batch request body.
+ *
+ * Supports newline-delimited JSON (one document per line) and a top-level
+ * JSON array of documents. Only the current document is held in memory, and a
+ * document above the maximum size fails the read with {@link PayloadTooLargeException}.
+ */
+abstract class BatchDocumentReader implements Iterator<String>, Closeable {
+
+    private String next;
+    private boolean done;
+
+    /**
+     * @param maxDocumentBytes Maximum size of one line in UTF-8 bytes
+     */
+    static BatchDocumentReader ndjson(InputStream in, long maxDocumentBytes) {
+        return new NdjsonReader(in, maxDocumentBytes);
+    }
+
+    /**
+     * @param maxDocumentBytes Maximum size of one array element in UTF-8 bytes
+     */
+    static BatchDocumentReader jsonArray(InputStream in, ObjectMapper objectMapper, long maxDocumentBytes)
+            throws IOException {
+        // Bounds single string values, which are read as a whole before their size is known
+        JsonFactory factory = objectMapper.getFactory().rebuild()
+                .streamReadConstraints(StreamReadConstraints.builder()
+                        .maxStringLength((int) Math.min(maxDocumentBytes, Integer.MAX_VALUE))
+                        .build())
+                .build();
+        return new JsonArrayReader(factory, factory.createParser(in), maxDocumentBytes);
+    }
+
+    /**
+     * @return The next document or {@code null} at the end of the input
+     */
+    protected abstract String readNext() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read batch input", e);
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String document = next;
+        next = null;
+        return document;
+    }
+
+    /**
+     * Splits lines on the bytes, so no line is decoded before its size is known.
+     * A newline byte never occurs within a multi-byte UTF-8 sequence.
+     */
+    private static class NdjsonReader extends BatchDocumentReader {
+        private final InputStream in;
+        private final long maxDocumentBytes;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+
+        NdjsonReader(InputStream in, long maxDocumentBytes) {
+            this.in = in;
+            this.maxDocumentBytes = maxDocumentBytes;
+        }
+
+        @Override
+        protected String readNext() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            while (true) {
+                if (position == limit) {
+                    int n = in.read(buffer);
+                    if (n < 0) {
+                        String last = line.toString(StandardCharsets.UTF_8);
+                        return last.isBlank() ? null : last;
+                    }
+                    position = 0;
+                    limit = n;
+                }
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                if (line.size() + (end - position) > maxDocumentBytes) {
+                    throw new PayloadTooLargeException(maxDocumentBytes);
+                }
+                line.write(buffer, position, end - position);
+                if (end == limit) {
+                    position = limit;
+                    continue;
+                }
+                position = end + 1;
+                String document = line.toString(StandardCharsets.UTF_8);
+                if (!document.isBlank()) {
+                    return document;
+                }
+                line.reset();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Copies one array element at a time, checking its size after every token
+     */
+    private static class JsonArrayReader extends BatchDocumentReader {
+        private final JsonFactory factory;
+        private final JsonParser parser;
+        private final long maxDocumentBytes;
+        private boolean started;
+
+        JsonArrayReader(JsonFactory factory, JsonParser parser, long maxDocumentBytes) {
+            this.factory = factory;
+            this.parser = parser;
+            this.maxDocumentBytes = maxDocumentBytes;
+        }
+
+        @Override
+        protected String readNext() throws IOException {
+            if (!started) {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Batch input must be a JSON array of FHIR resources");
+                }
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+
+            long start = parser.currentTokenLocation().getByteOffset();
+            ByteArrayOutputStream document = new ByteArrayOutputStream();
+            try (JsonGenerator generator = factory.createGenerator(document)) {
+                int depth = 0;
+                while (true) {
+                    generator.copyCurrentEventExact(parser);
+                    if (token.isStructStart()) {
+                        depth++;
+                    } else if (token.isStructEnd()) {
+                        depth--;
+                    }
+                    if (parser.currentLocation().getByteOffset() - start > maxDocumentBytes) {
+                        throw new PayloadTooLargeException(maxDocumentBytes);
+                    }
+                    if (depth == 0) {
+                        break;
+                    }
+                    token = parser.nextToken();
+                    if (token == null) {
+                        throw new IOException("Unexpected end of batch input");
+                    }
+                }
+            }
+            return document.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
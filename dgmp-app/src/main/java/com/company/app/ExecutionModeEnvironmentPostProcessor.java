@@ -0,0 +1,28 @@
+package com.company.app;
+
+import com.company.validation.ExecutionMode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Maps {@code hapi.fhir.validation.execution.mode} to Spring Boot's
+ * {@code spring.threads.virtual.enabled}, so in VIRTUAL mode Tomcat handles every request
+ * on its own virtual thread. The mode takes precedence over a separately set Spring property,
+ * since {@link com.company.validation.ValidationWorkers} only offload validations in VIRTUAL mode.
+ */
+public class ExecutionModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String EXECUTION_MODE = "hapi.fhir.validation.execution.mode";
+    static final String VIRTUAL_THREADS = "spring.threads.virtual.enabled";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        ExecutionMode mode = environment.getProperty(EXECUTION_MODE, ExecutionMode.class, ExecutionMode.PLATFORM);
+        environment.getPropertySources().addFirst(new MapPropertySource("executionMode",
+                Map.of(VIRTUAL_THREADS, mode == ExecutionMode.VIRTUAL)));
+    }
+}
@@ -0,0 +1,58 @@
+package com.company.app;
+
+import com.company.fhir.MedicationDocumentGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * REST Controller for generated test documents, disabled with {@code hapi.fhir.generator.enabled=false}
+ */
+@RestController
+@RequestMapping("/api/generator")
+@ConditionalOnProperty(name = "hapi.fhir.generator.enabled", havingValue = "true", matchIfMissing = true)
+public class GeneratorController {
+
+    private final MedicationDocumentGenerator documentGenerator;
+    private final long maxCount;
+    private final int maxStatements;
+
+    public GeneratorController(
+            MedicationDocumentGenerator documentGenerator,
+            @Value("${hapi.fhir.generator.max-count:100000}") long maxCount,
+            @Value("${hapi.fhir.generator.max-statements:100}") int maxStatements) {
+        this.documentGenerator = documentGenerator;
+        this.maxCount = maxCount;
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Streams generated medication documents as NDJSON, one compact document per line.
+     * Requests above the configured maximum count or statements are rejected with 400.
+     */
+    @GetMapping(value = "/medication-documents", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> medicationDocuments(
+            @RequestParam(defaultValue = "1") long count,
+            @RequestParam(defaultValue = "1") int statements) {
+        if (count < 0 || count > maxCount || statements < 1 || statements > maxStatements) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+            documentGenerator.writeNdjson(writer, count, statements);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -4,12 +4,13 @@ import com.company.fhir.SimpleFhirService;
 import com.company.fhir.SimpleMedicationDocumentService;
 
 import ca.uhn.fhir.context.FhirContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import com.company.fhir.SimpleDocumentBundleService;
-
-import ca.uhn.fhir.validation.FhirValidator;
-import ca.uhn.fhir.validation.ValidationResult;
+import com.company.validation.EpaMedicationValidationService;
+import com.company.validation.ValidationWarmup;
 
 
 
@@ -20,19 +21,22 @@ public class HealthController {
     private final SimpleFhirService fhirService;
     private final SimpleDocumentBundleService bundleService;
     private final SimpleMedicationDocumentService medicationService;
-    private final FhirValidator validator;
+    private final EpaMedicationValidationService validationService;
+    private final ValidationWarmup warmup;
 
 
     public HealthController(FhirContext context,
                             SimpleFhirService fhirService,
                             SimpleDocumentBundleService bundleService,
                             SimpleMedicationDocumentService medicationService,
-                            FhirValidator validator) {
+                            EpaMedicationValidationService validationService,
+                            ValidationWarmup warmup) {
         this.context = context;
         this.fhirService = fhirService;
         this.bundleService = bundleService;
         this.medicationService = medicationService;
-        this.validator = validator;
+        this.validationService = validationService;
+        this.warmup = warmup;
     }
 
     @GetMapping("/health")
@@ -40,6 +44,14 @@ public class HealthController {
         return "FHIR version: " + context.getVersion().getVersion();
     }
 
+    @GetMapping("/ready")
+    public ResponseEntity<String> ready() {
+        if (warmup.isComplete()) {
+            return ResponseEntity.ok("READY");
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("WARMING_UP");
+    }
+
     @GetMapping("/sample")
     public String sample() {
         return fhirService.createSamplePatientJson();
@@ -58,8 +70,7 @@ public class HealthController {
     @GetMapping("/validate")
     public String validate() {
         String json = medicationService.createMedicationDocument();
-        ValidationResult result = validator.validateWithResult(json);
-        return result.toString();
+        return validationService.validateJson(json).toString();
     }
 
     @GetMapping("/test")
@@ -1,17 +1,39 @@
 package com.company.app;
 
 import com.company.fhir.SimpleMedicationDocumentService;
+import com.company.validation.BatchValidationResult;
+import com.company.validation.BatchValidationService;
 import com.company.validation.EpaMedicationValidationService;
+import com.company.validation.PayloadTooLargeException;
+import com.company.validation.ValidationAdmissionControl;
+import com.company.validation.ValidationJob;
+import com.company.validation.ValidationJobService;
+import com.company.validation.ValidationLevel;
+import com.company.validation.ValidationMetrics;
 import com.company.validation.ValidationResponse;
 import com.company.validation.ValidationMessage;
-import org.hl7.fhir.r4.model.Bundle;
+import com.company.validation.ValidationRejectedException;
+import com.company.validation.ValidatorPoolExhaustedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import ca.uhn.fhir.parser.IParser;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * REST Controller for EPA Medication validation endpoints
  */
@@ -22,14 +44,26 @@ public class ValidationController {
     private final EpaMedicationValidationService validationService;
     private final SimpleMedicationDocumentService medicationService;
     private final IParser jsonParser;
+    private final BatchValidationService batchValidationService;
+    private final ObjectMapper objectMapper;
+    private final ValidationAdmissionControl admissionControl;
+    private final ValidationJobService jobService;
 
     public ValidationController(
             EpaMedicationValidationService validationService,
             SimpleMedicationDocumentService medicationService,
-            IParser jsonParser) {
+            IParser jsonParser,
+            BatchValidationService batchValidationService,
+            ObjectMapper objectMapper,
+            ValidationAdmissionControl admissionControl,
+            ValidationJobService jobService) {
         this.validationService = validationService;
         this.medicationService = medicationService;
         this.jsonParser = jsonParser;
+        this.batchValidationService = batchValidationService;
+        this.objectMapper = objectMapper;
+        this.admissionControl = admissionControl;
+        this.jobService = jobService;
     }
 
     /**
@@ -38,16 +72,23 @@ public class ValidationController {
     @GetMapping("/test-generated")
     public ResponseEntity<ValidationResultDto> validateGeneratedDocument() {
         String json = medicationService.createMedicationDocument();
-        ValidationResponse response = validationService.validateJson(json);
+        ValidationResponse response;
+        try (ValidationAdmissionControl.Permit permit = admissionControl.acquire(ValidationMetrics.utf8Length(json))) {
+            response = validationService.validateJson(json);
+        }
         return ResponseEntity.ok(toDto(response, json));
     }
 
     /**
      * Validates FHIR JSON from request body
+     *
+     * @param level Validation depth, defaults to hapi.fhir.validation.default-level
      */
     @PostMapping(value = "/validate", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ValidationResultDto> validateJson(@RequestBody String jsonContent) {
-        ValidationResponse response = validationService.validateJson(jsonContent);
+    public ResponseEntity<ValidationResultDto> validateJson(
+            HttpServletRequest request,
+            @RequestParam(required = false) ValidationLevel level) throws IOException {
+        ValidationResponse response = validateRequestBody(request, level);
 
         if (response.isValid()) {
             return ResponseEntity.ok(toDto(response, null));
@@ -58,27 +99,15 @@ public class ValidationController {
 
     /**
      * Validates FHIR JSON and returns detailed results
+     *
+     * @param level Validation depth, defaults to hapi.fhir.validation.default-level
      */
     @PostMapping(value = "/validate-detailed", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<DetailedValidationResultDto> validateJsonDetailed(@RequestBody String jsonContent) {
-        ValidationResponse response = validationService.validateJson(jsonContent);
-
-        DetailedValidationResultDto dto = new DetailedValidationResultDto();
-        dto.valid = response.isValid();
-        dto.totalMessages = response.getMessages().size();
-        dto.errorCount = response.getErrors().size();
-        dto.warningCount = response.getWarnings().size();
-        dto.informationCount = response.getInformation().size();
-
-        dto.errors = response.getErrors().stream()
-                .map(this::toMessageDto)
-                .toList();
-        dto.warnings = response.getWarnings().stream()
-                .map(this::toMessageDto)
-                .toList();
-        dto.information = response.getInformation().stream()
-                .map(this::toMessageDto)
-                .toList();
+    public ResponseEntity<DetailedValidationResultDto> validateJsonDetailed(
+            HttpServletRequest request,
+            @RequestParam(required = false) ValidationLevel level) throws IOException {
+        ValidationResponse response = validateRequestBody(request, level);
+        DetailedValidationResultDto dto = toDetailedDto(response, new DetailedValidationResultDto());
 
         if (response.isValid()) {
             return ResponseEntity.ok(dto);
@@ -87,6 +116,81 @@ public class ValidationController {
         }
     }
 
+    /**
+     * Validates a batch of FHIR JSON documents, either newline-delimited (application/x-ndjson)
+     * or as a JSON array (application/json). Streams one result line per document in completion order.
+     * Each document is limited to hapi.fhir.validation.max-payload-bytes and admitted on its own.
+     */
+    @PostMapping(value = "/validate-batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> validateBatch(
+            HttpServletRequest request,
+            @RequestParam(required = false) ValidationLevel level) {
+        boolean jsonArray = MediaType.APPLICATION_JSON.isCompatibleWith(
+                MediaType.parseMediaType(request.getContentType()));
+
+        StreamingResponseBody body = out -> {
+            long maxDocumentBytes = validationService.getMaxPayloadBytes();
+            try (BatchDocumentReader documents = jsonArray
+                    ? BatchDocumentReader.jsonArray(request.getInputStream(), objectMapper, maxDocumentBytes)
+                    : BatchDocumentReader.ndjson(request.getInputStream(), maxDocumentBytes)) {
+                batchValidationService.validateAll(documents, level, result -> writeBatchLine(out, result));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Batch validation interrupted");
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Queues the validation of FHIR JSON and returns the job immediately (202, Location of the job)
+     *
+     * @param level Validation depth, defaults to hapi.fhir.validation.default-level
+     */
+    @PostMapping(value = "/jobs", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ValidationJobDto> submitJob(
+            HttpServletRequest request,
+            @RequestParam(required = false) ValidationLevel level) throws IOException {
+        if (request.getContentLengthLong() > validationService.getMaxPayloadBytes()) {
+            throw new PayloadTooLargeException(validationService.getMaxPayloadBytes());
+        }
+        ValidationJob job = jobService.submit(request.getInputStream(), request.getContentLengthLong(), level);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/validation/jobs/" + job.getId()))
+                .body(toJobDto(job));
+    }
+
+    /**
+     * Returns a validation job, including its result once finished. With {@code wait} the
+     * request is held until the job finishes or the time (capped at hapi.fhir.validation.jobs.max-wait-ms)
+     * elapses, without occupying a request thread.
+     *
+     * @param wait Milliseconds to wait for an unfinished job
+     */
+    @GetMapping("/jobs/{id}")
+    public CompletableFuture<ResponseEntity<ValidationJobDto>> getJob(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") long wait) {
+        ValidationJob job = jobService.get(id);
+        if (job == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        long waitMillis = Math.min(Math.max(wait, 0), jobService.getMaxWaitMillis());
+        if (job.isFinished() || waitMillis == 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(toJobDto(job)));
+        }
+        return job.whenFinished()
+                .completeOnTimeout(job, waitMillis, TimeUnit.MILLISECONDS)
+                .thenApply(current -> ResponseEntity.ok(toJobDto(current)));
+    }
+
     /**
      * Simple health check for validation service
      */
@@ -95,15 +199,107 @@ public class ValidationController {
         return ResponseEntity.ok("EPA Medication Validation Service is running");
     }
 
+    /**
+     * Rejects payloads above the maximum size with 413
+     */
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<ValidationResultDto> payloadTooLarge(PayloadTooLargeException e) {
+        return ResponseEntity.status(413).body(toDto(ValidationResponse.error(e.getMessage()), null));
+    }
+
+    @ExceptionHandler(ValidationRejectedException.class)
+    public ResponseEntity<ValidationResultDto> validationRejected(ValidationRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(toDto(ValidationResponse.error(e.getMessage()), null));
+    }
+
+    /**
+     * Answers with 503 when no validator became available within the pool's acquire timeout
+     */
+    @ExceptionHandler(ValidatorPoolExhaustedException.class)
+    public ResponseEntity<ValidationResultDto> validatorPoolExhausted(ValidatorPoolExhaustedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.getRetryAfterSeconds()))
+                .body(toDto(ValidationResponse.error(e.getMessage()), null));
+    }
+
+    /**
+     * Parses the request body directly from the request stream. A declared Content-Length
+     * above the limit is rejected before reading; otherwise the limit is enforced while streaming.
+     * The body is only read once admission control lets the request in.
+     */
+    private ValidationResponse validateRequestBody(HttpServletRequest request, ValidationLevel level)
+            throws IOException {
+        if (request.getContentLengthLong() > validationService.getMaxPayloadBytes()) {
+            throw new PayloadTooLargeException(validationService.getMaxPayloadBytes());
+        }
+        try (ValidationAdmissionControl.Permit permit = admissionControl.acquire(request.getContentLengthLong())) {
+            return validationService.validateJson(request.getInputStream(), level);
+        }
+    }
+
     private ValidationResultDto toDto(ValidationResponse response, String validatedJson) {
         ValidationResultDto dto = new ValidationResultDto();
         dto.valid = response.isValid();
+        dto.level = response.getLevel();
+        dto.truncated = response.isTruncated();
         dto.messageCount = response.getMessages().size();
         dto.summary = response.toString();
         dto.validatedJson = validatedJson;
         return dto;
     }
 
+    private <T extends DetailedValidationResultDto> T toDetailedDto(ValidationResponse response, T dto) {
+        dto.valid = response.isValid();
+        dto.level = response.getLevel();
+        dto.truncated = response.isTruncated();
+        dto.totalMessages = response.getMessages().size();
+        dto.errorCount = response.getErrors().size();
+        dto.warningCount = response.getWarnings().size();
+        dto.informationCount = response.getInformation().size();
+
+        dto.errors = response.getErrors().stream()
+                .map(this::toMessageDto)
+                .toList();
+        dto.warnings = response.getWarnings().stream()
+                .map(this::toMessageDto)
+                .toList();
+        dto.information = response.getInformation().stream()
+                .map(this::toMessageDto)
+                .toList();
+        return dto;
+    }
+
+    private ValidationJobDto toJobDto(ValidationJob job) {
+        ValidationJobDto dto = new ValidationJobDto();
+        dto.id = job.getId();
+        dto.status = job.getStatus();
+        dto.level = job.getLevel();
+        dto.submittedAt = job.getSubmittedAt();
+        dto.startedAt = job.getStartedAt();
+        dto.completedAt = job.getCompletedAt();
+        dto.error = job.getError();
+        ValidationResponse response = job.getResponse();
+        if (response != null) {
+            dto.result = toDetailedDto(response, new DetailedValidationResultDto());
+        }
+        return dto;
+    }
+
+    private void writeBatchLine(OutputStream out, BatchValidationResult result) {
+        BatchValidationResultDto dto = new BatchValidationResultDto();
+        dto.index = result.getIndex();
+        toDetailedDto(result.getResponse(), dto);
+        try {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private MessageDto toMessageDto(ValidationMessage msg) {
         MessageDto dto = new MessageDto();
         dto.severity = msg.getSeverity();
@@ -116,6 +312,8 @@ public class ValidationController {
 
     public static class ValidationResultDto {
         public boolean valid;
+        public ValidationLevel level;
+        public boolean truncated;
         public int messageCount;
         public String summary;
         public String validatedJson;
@@ -123,6 +321,8 @@ public class ValidationController {
 
     public static class DetailedValidationResultDto {
         public boolean valid;
+        public ValidationLevel level;
+        public boolean truncated;
         public int totalMessages;
         public int errorCount;
         public int warningCount;
@@ -132,6 +332,21 @@ public class ValidationController {
         public java.util.List<MessageDto> information;
     }
 
+    public static class BatchValidationResultDto extends DetailedValidationResultDto {
+        public int index;
+    }
+
+    public static class ValidationJobDto {
+        public String id;
+        public ValidationJob.Status status;
+        public ValidationLevel level;
+        public Instant submittedAt;
+        public Instant startedAt;
+        public Instant completedAt;
+        public String error;
+        public DetailedValidationResultDto result;
+    }
+
     public static class MessageDto {
         public String severity;
         public String location;
@@ -0,0 +1,95 @@
+package com.company.app;
+
+import com.company.fhir.EpaProfileSampleService;
+import com.company.validation.ValidationWarmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the validation warm-up in the background once the application has started
+ * and reports readiness as the "validationWarmup" health indicator.
+ *
+ * Uses the bundled sample documents plus one generated resource per EPA profile.
+ */
+@Component("validationWarmup")
+public class ValidationWarmupRunner implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationWarmupRunner.class);
+
+    private static final String SAMPLE_DOCUMENTS = "classpath*:samples/*.json";
+
+    private final ValidationWarmup warmup;
+    private final EpaProfileSampleService profileSampleService;
+    private final boolean enabled;
+    private final long retryDelayMillis;
+
+    public ValidationWarmupRunner(
+            ValidationWarmup warmup,
+            EpaProfileSampleService profileSampleService,
+            @Value("${hapi.fhir.validation.warmup.enabled:true}") boolean enabled,
+            @Value("${hapi.fhir.validation.warmup.retry-delay-ms:30000}") long retryDelayMillis) {
+        this.warmup = warmup;
+        this.profileSampleService = profileSampleService;
+        this.enabled = enabled;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            warmup.skip();
+            return;
+        }
+        Thread thread = new Thread(this::run, "validation-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Repeats a failed warm-up until it succeeds; readiness stays down meanwhile
+     */
+    private void run() {
+        List<String> documents = loadDocuments();
+        while (!warmup.warmUp(documents)) {
+            log.warn("Retrying validation warm-up in {} ms", retryDelayMillis);
+            try {
+                Thread.sleep(retryDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Health health() {
+        return warmup.isComplete()
+                ? Health.up().build()
+                : Health.outOfService().withDetail("reason", "Validation warm-up in progress").build();
+    }
+
+    private List<String> loadDocuments() {
+        List<String> documents = new ArrayList<>(profileSampleService.createProfileSamples().values());
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(SAMPLE_DOCUMENTS)) {
+                documents.add(resource.getContentAsString(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            log.warn("Could not load sample documents for warm-up: {}", e.getMessage());
+        }
+        return documents;
+    }
+}
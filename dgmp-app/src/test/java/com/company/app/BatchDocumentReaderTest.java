@@ -0,0 +1,92 @@
+package com.company.app;
+
+import com.company.validation.PayloadTooLargeException;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchDocumentReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsNdjsonLinesSkippingBlankLines() throws IOException {
+        String input = "{\"id\":\"1\"}\n\n   \r\n{\"name\":\"Müller\"}\r\n{\"id\":\"3\"}";
+
+        assertThat(read(BatchDocumentReader.ndjson(stream(input), 100)))
+                .containsExactly("{\"id\":\"1\"}", "{\"name\":\"Müller\"}\r", "{\"id\":\"3\"}");
+    }
+
+    @Test
+    void readsNdjsonLinesLongerThanTheReadBuffer() throws IOException {
+        String line = "{\"text\":\"" + "x".repeat(200_000) + "\"}";
+
+        assertThat(read(BatchDocumentReader.ndjson(stream(line + "\n" + line), 300_000)))
+                .containsExactly(line, line);
+    }
+
+    @Test
+    void rejectsNdjsonLineAboveLimit() {
+        BatchDocumentReader documents = BatchDocumentReader.ndjson(stream("{\"id\":\"1\"}\n{\"id\":\"12345\"}\n"), 12);
+
+        assertThat(documents.next()).isEqualTo("{\"id\":\"1\"}");
+        assertThatThrownBy(documents::hasNext).isInstanceOf(PayloadTooLargeException.class);
+    }
+
+    @Test
+    void readsJsonArrayElements() throws IOException {
+        String input = "[{\"id\":\"1\",\"value\":[1,2.50,true,null]}, {\"name\":\"Müller\"}]";
+
+        assertThat(read(BatchDocumentReader.jsonArray(stream(input), objectMapper, 100)))
+                .containsExactly("{\"id\":\"1\",\"value\":[1,2.50,true,null]}", "{\"name\":\"Müller\"}");
+    }
+
+    @Test
+    void rejectsJsonArrayElementAboveLimit() throws IOException {
+        BatchDocumentReader documents = BatchDocumentReader.jsonArray(
+                stream("[{\"id\":\"1\"},{\"a\":1,\"b\":2,\"c\":3}]"), objectMapper, 12);
+
+        assertThat(documents.next()).isEqualTo("{\"id\":\"1\"}");
+        assertThatThrownBy(documents::hasNext).isInstanceOf(PayloadTooLargeException.class);
+    }
+
+    @Test
+    void rejectsLongStringValueInJsonArray() throws IOException {
+        BatchDocumentReader documents = BatchDocumentReader.jsonArray(
+                stream("[{\"text\":\"" + "x".repeat(5000) + "\"}]"), objectMapper, 1000);
+
+        assertThatThrownBy(documents::hasNext)
+                .isInstanceOf(UncheckedIOException.class)
+                .hasRootCauseInstanceOf(StreamConstraintsException.class);
+    }
+
+    @Test
+    void rejectsInputThatIsNoJsonArray() throws IOException {
+        BatchDocumentReader documents = BatchDocumentReader.jsonArray(stream("{\"id\":\"1\"}"), objectMapper, 100);
+
+        assertThatThrownBy(documents::hasNext).isInstanceOf(UncheckedIOException.class);
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> read(BatchDocumentReader documents) throws IOException {
+        List<String> read = new ArrayList<>();
+        try (documents) {
+            documents.forEachRemaining(read::add);
+        }
+        return read;
+    }
+}
@@ -0,0 +1,112 @@
+package com.company.benchmarks;
+
+import com.company.fhir.EpaProfiles;
+import com.company.fhir.SimpleMedicationDocumentService;
+import com.company.validation.DocumentBundlePreValidator;
+import com.company.validation.EpaMedicationValidationService;
+import com.company.validation.EpaPackageVersions;
+import com.company.validation.FhirValidatorConfig;
+import com.company.validation.FhirValidatorFactory;
+import com.company.validation.ProfileRouter;
+import com.company.validation.ValidationLevel;
+import com.company.validation.ValidationMessage;
+import com.company.validation.ValidationMetrics;
+import com.company.validation.ValidationResultCache;
+import com.company.validation.ValidatorPool;
+import com.company.validation.ValidatorPools;
+import com.company.validation.ValidatorSettings;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hl7.fhir.r4.model.Bundle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmark inputs and a validation service wired without Spring
+ */
+final class BenchmarkDocuments {
+
+    /**
+     * Prefix of document names that are generated with the given number of MedicationStatements
+     */
+    static final String GENERATED = "generated:";
+
+    private BenchmarkDocuments() {}
+
+    /**
+     * @param name File name of a repository sample document (packaged under samples/),
+     *             or {@code generated:<statements>} for a synthetic bundle
+     */
+    static String load(FhirContext fhirContext, String name) {
+        if (name.startsWith(GENERATED)) {
+            int statements = Integer.parseInt(name.substring(GENERATED.length()));
+            return new SimpleMedicationDocumentService(fhirContext).createMedicationDocument(statements);
+        }
+        try (InputStream in = BenchmarkDocuments.class.getClassLoader().getResourceAsStream("samples/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown sample document " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a factory for validators with the default settings
+     */
+    static FhirValidatorFactory validatorFactory(FhirContext fhirContext) {
+        IValidationSupport validationSupport = FhirValidatorConfig.createStandaloneValidationSupport(fhirContext);
+        return new FhirValidatorFactory(fhirContext, validationSupport, ValidatorSettings.defaults());
+    }
+
+    /**
+     * Parses a benchmark input, which must pass the structural pre-check: with fail-fast, as in
+     * production, a failing document would be measured as a rejection instead of a validation
+     *
+     * @throws IllegalArgumentException if the document fails the pre-check
+     */
+    static Bundle parseValidatable(FhirContext fhirContext, String name, String json) {
+        Bundle bundle = fhirContext.newJsonParser().parseResource(Bundle.class, json);
+        List<ValidationMessage> errors = preValidator(fhirContext).check(bundle);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Benchmark document " + name + " fails the pre-check: "
+                    + errors.get(0).getLocation() + " " + errors.get(0).getMessage());
+        }
+        return bundle;
+    }
+
+    /**
+     * @return The pre-check with the production defaults
+     */
+    static DocumentBundlePreValidator preValidator(FhirContext fhirContext) {
+        return new DocumentBundlePreValidator(fhirContext, true, true);
+    }
+
+    /**
+     * Creates a validation service with a single pooled validator per level and the result cache disabled
+     */
+    static EpaMedicationValidationService validationService(FhirContext fhirContext, FhirValidatorFactory factory) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ValidatorPool pool = new ValidatorPool("benchmark", 1, 60_000, factory::create, meterRegistry);
+        ValidatorPools pools = new ValidatorPools(pool, factory, meterRegistry, 60_000, ValidationLevel.FULL_TERMINOLOGY);
+        ValidationResultCache resultCache = new ValidationResultCache(false, 0, 1, "benchmark", meterRegistry);
+        return new EpaMedicationValidationService(
+                EpaPackageVersions.single(EpaProfiles.PACKAGE_VERSION, pools, meterRegistry),
+                ProfileRouter.none(pools, meterRegistry),
+                resultCache,
+                new ValidationMetrics(meterRegistry),
+                preValidator(fhirContext),
+                fhirContext,
+                Long.MAX_VALUE,
+                0,
+                0,
+                0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.company.benchmarks;
+
+import com.company.fhir.MedicationDocumentTemplate;
+import com.company.fhir.SimpleMedicationDocumentService;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Medication document generation via SimpleMedicationDocumentService and the precompiled template
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DocumentGenerationBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int statements;
+
+    private SimpleMedicationDocumentService medicationService;
+    private MedicationDocumentTemplate template;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FhirContext fhirContext = FhirContext.forR4();
+        medicationService = new SimpleMedicationDocumentService(fhirContext);
+        template = MedicationDocumentTemplate.compile(fhirContext);
+    }
+
+    @Benchmark
+    public String createMedicationDocument() {
+        return medicationService.createMedicationDocument(statements);
+    }
+
+    @Benchmark
+    public String createFromTemplate() {
+        return template.createDocument(statements);
+    }
+}
@@ -0,0 +1,46 @@
+package com.company.benchmarks;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of synthetic bundles, pretty-printed vs compact
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EncodeBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int statements;
+
+    private IParser prettyParser;
+    private IParser compactParser;
+    private Bundle bundle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FhirContext fhirContext = FhirContext.forR4();
+        prettyParser = fhirContext.newJsonParser().setPrettyPrint(true);
+        compactParser = fhirContext.newJsonParser();
+        String json = BenchmarkDocuments.load(fhirContext, BenchmarkDocuments.GENERATED + statements);
+        bundle = compactParser.parseResource(Bundle.class, json);
+    }
+
+    @Benchmark
+    public String encodePretty() {
+        return prettyParser.encodeResourceToString(bundle);
+    }
+
+    @Benchmark
+    public String encodeCompact() {
+        return compactParser.encodeResourceToString(bundle);
+    }
+}
@@ -0,0 +1,45 @@
+package com.company.benchmarks;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw FHIR JSON parsing without validation
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({
+            "sampleMedicationDocument.json",
+            "sampleMedikationMitCategory.json",
+            "testDocumentBundle.json",
+            "generated:10",
+            "generated:100",
+            "generated:1000"
+    })
+    public String document;
+
+    private IParser parser;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FhirContext fhirContext = FhirContext.forR4();
+        parser = fhirContext.newJsonParser();
+        json = BenchmarkDocuments.load(fhirContext, document);
+    }
+
+    @Benchmark
+    public IBaseResource parse() {
+        return parser.parseResource(json);
+    }
+}
@@ -0,0 +1,67 @@
+package com.company.benchmarks;
+
+import com.company.validation.EpaMedicationValidationService;
+import com.company.validation.ValidationLevel;
+import com.company.validation.ValidationResponse;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of the repository sample documents and synthetic bundles,
+ * from JSON (parse + validate) and from an already parsed Bundle.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ValidationBenchmark {
+
+    /**
+     * Documents passing the structural pre-check; sampleMedicationDocument.json, testDocument2.json
+     * and testDocumentBundle.json lack Bundle.meta.profile and would only measure the rejection
+     */
+    @Param({
+            "sampleMedicationDocumentPfSecPZN.json",
+            "sampleMedicationDocumentProfile.json",
+            "sampleMedicationDocumentProfileSecurity.json",
+            "sampleMedikationMitCategory.json",
+            "generated:10",
+            "generated:100"
+    })
+    public String document;
+
+    /**
+     * Compare levels with -p level=STRUCTURE,PROFILE,FULL_TERMINOLOGY
+     */
+    @Param({"FULL_TERMINOLOGY"})
+    public ValidationLevel level;
+
+    private EpaMedicationValidationService validationService;
+    private String json;
+    private Bundle bundle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FhirContext fhirContext = FhirContext.forR4();
+        validationService = BenchmarkDocuments.validationService(
+                fhirContext, BenchmarkDocuments.validatorFactory(fhirContext));
+        json = BenchmarkDocuments.load(fhirContext, document);
+        bundle = BenchmarkDocuments.parseValidatable(fhirContext, document, json);
+    }
+
+    @Benchmark
+    public ValidationResponse validateJson() {
+        return validationService.validateJson(json, level);
+    }
+
+    @Benchmark
+    public ValidationResponse validateBundle() {
+        return validationService.validate(bundle, level);
+    }
+}
@@ -0,0 +1,156 @@
+package com.company.fhir;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Composition;
+import org.hl7.fhir.r4.model.Medication;
+import org.hl7.fhir.r4.model.MedicationDispense;
+import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.MedicationStatement;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.PractitionerRole;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.stereotype.Service;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+
+/**
+ * Creates one minimal sample resource per EPA Medication profile
+ */
+@Service
+public class EpaProfileSampleService {
+
+    private final FhirContext context;
+    private final SimpleMedicationDocumentService medicationService;
+
+    public EpaProfileSampleService(FhirContext context, SimpleMedicationDocumentService medicationService) {
+        this.context = context;
+        this.medicationService = medicationService;
+    }
+
+    /**
+     * @return JSON sample per profile URL, in the order of {@link EpaProfiles#ALL}
+     */
+    public Map<String, String> createProfileSamples() {
+        IParser parser = context.newJsonParser();
+        Map<String, String> samples = new LinkedHashMap<>();
+
+        samples.put(EpaProfiles.EPA_MEDICATION_BUNDLE, medicationService.createMedicationDocument());
+        samples.put(EpaProfiles.EPA_MEDICATION_STATEMENT,
+                encode(parser, medicationStatement(), EpaProfiles.EPA_MEDICATION_STATEMENT));
+        samples.put(EpaProfiles.EPA_MEDICATION,
+                encode(parser, medication(), EpaProfiles.EPA_MEDICATION));
+        samples.put(EpaProfiles.EPA_MEDICATION_REQUEST,
+                encode(parser, medicationRequest(), EpaProfiles.EPA_MEDICATION_REQUEST));
+        samples.put(EpaProfiles.EPA_MEDICATION_DISPENSE,
+                encode(parser, medicationDispense(), EpaProfiles.EPA_MEDICATION_DISPENSE));
+        samples.put(EpaProfiles.EPA_MEDICATION_COMPOSITION,
+                encode(parser, composition(), EpaProfiles.EPA_MEDICATION_COMPOSITION));
+        samples.put(EpaProfiles.EPA_MEDICATION_ORGANIZATION,
+                encode(parser, new Organization().setName("Praxis Musterarzt"), EpaProfiles.EPA_MEDICATION_ORGANIZATION));
+        samples.put(EpaProfiles.EPA_MEDICATION_PATIENT,
+                encode(parser, patient(), EpaProfiles.EPA_MEDICATION_PATIENT));
+        samples.put(EpaProfiles.EPA_MEDICATION_PRACTITIONER,
+                encode(parser, practitioner(), EpaProfiles.EPA_MEDICATION_PRACTITIONER));
+        samples.put(EpaProfiles.EPA_MEDICATION_PRACTITIONER_ROLE,
+                encode(parser, practitionerRole(), EpaProfiles.EPA_MEDICATION_PRACTITIONER_ROLE));
+
+        return samples;
+    }
+
+    private String encode(IParser parser, Resource resource, String profile) {
+        resource.getMeta().addProfile(profile);
+        return parser.encodeResourceToString(resource);
+    }
+
+    private CodeableConcept pzn() {
+        return new CodeableConcept()
+                .addCoding(new Coding()
+                        .setSystem("http://fhir.de/CodeSystem/ifa/pzn")
+                        .setCode("12345678")
+                        .setDisplay("Ibuprofen 400mg"));
+    }
+
+    private Medication medication() {
+        Medication medication = new Medication();
+        medication.setCode(pzn());
+        return medication;
+    }
+
+    private MedicationStatement medicationStatement() {
+        MedicationStatement statement = new MedicationStatement();
+        statement.setStatus(MedicationStatement.MedicationStatementStatus.ACTIVE);
+        statement.setMedication(pzn());
+        statement.setSubject(new Reference("Patient/example"));
+        statement.setDateAsserted(new Date());
+        return statement;
+    }
+
+    private MedicationRequest medicationRequest() {
+        MedicationRequest request = new MedicationRequest();
+        request.setStatus(MedicationRequest.MedicationRequestStatus.ACTIVE);
+        request.setIntent(MedicationRequest.MedicationRequestIntent.ORDER);
+        request.setMedication(pzn());
+        request.setSubject(new Reference("Patient/example"));
+        request.setAuthoredOn(new Date());
+        return request;
+    }
+
+    private MedicationDispense medicationDispense() {
+        MedicationDispense dispense = new MedicationDispense();
+        dispense.setStatus(MedicationDispense.MedicationDispenseStatus.COMPLETED);
+        dispense.setMedication(pzn());
+        dispense.setSubject(new Reference("Patient/example"));
+        dispense.setWhenHandedOver(new Date());
+        return dispense;
+    }
+
+    private Composition composition() {
+        Composition composition = new Composition();
+        composition.setStatus(Composition.CompositionStatus.FINAL);
+        composition.setDate(new Date());
+        composition.setTitle("Medication Document");
+        composition.setSubject(new Reference("Patient/example"));
+        composition.setType(new CodeableConcept()
+                .addCoding(new Coding()
+                        .setSystem("http://loinc.org")
+                        .setCode("56445-0")
+                        .setDisplay("Medication summary Document")));
+        composition.addAuthor(new Reference("Organization/example"));
+        return composition;
+    }
+
+    private Patient patient() {
+        Patient patient = new Patient();
+        patient.addIdentifier()
+                .setSystem("http://fhir.de/sid/gkv/kvid-10")
+                .setValue("X123456789");
+        patient.addName()
+                .setFamily("Mustermann")
+                .addGiven("Max");
+        return patient;
+    }
+
+    private Practitioner practitioner() {
+        Practitioner practitioner = new Practitioner();
+        practitioner.addName()
+                .setFamily("Musterarzt")
+                .addGiven("Erika");
+        return practitioner;
+    }
+
+    private PractitionerRole practitionerRole() {
+        PractitionerRole role = new PractitionerRole();
+        role.setPractitioner(new Reference("Practitioner/example"));
+        role.setOrganization(new Reference("Organization/example"));
+        return role;
+    }
+}
@@ -1,5 +1,7 @@
 package com.company.fhir;
 
+import java.util.List;
+
 /**
  * EPA Medication Profile URLs for version 3.1.0 based on EPA 3.1.3
  */
@@ -53,4 +55,18 @@ public final class EpaProfiles {
     // PractitionerRole
     public static final String EPA_MEDICATION_PRACTITIONER_ROLE =
             BASE_URL + "epa-medication-practitionerrole";
+
+    // All profiles of the package
+    public static final List<String> ALL = List.of(
+            EPA_MEDICATION_BUNDLE,
+            EPA_MEDICATION_STATEMENT,
+            EPA_MEDICATION,
+            EPA_MEDICATION_REQUEST,
+            EPA_MEDICATION_DISPENSE,
+            EPA_MEDICATION_COMPOSITION,
+            EPA_MEDICATION_ORGANIZATION,
+            EPA_MEDICATION_PATIENT,
+            EPA_MEDICATION_PRACTITIONER,
+            EPA_MEDICATION_PRACTITIONER_ROLE
+    );
 }
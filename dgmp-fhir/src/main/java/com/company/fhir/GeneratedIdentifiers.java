@@ -0,0 +1,57 @@
+package com.company.fhir;
+
+import java.util.Random;
+
+/**
+ * Random but formally valid German identifiers for generated test documents
+ */
+public final class GeneratedIdentifiers {
+
+    private GeneratedIdentifiers() {}
+
+    /**
+     * Random PZN: seven digits and the modulo 11 check digit (weights 1 to 7).
+     * Numbers whose check digit would be 10 are not assigned and skipped.
+     */
+    public static String pzn(Random random) {
+        while (true) {
+            int body = random.nextInt(10_000_000);
+            int checkDigit = pznCheckDigit(body);
+            if (checkDigit < 10) {
+                return String.format("%07d%d", body, checkDigit);
+            }
+        }
+    }
+
+    /**
+     * @param body The first seven digits of the PZN
+     * @return The check digit, 10 if the number is invalid
+     */
+    public static int pznCheckDigit(int body) {
+        int sum = 0;
+        for (int weight = 7; weight >= 1; weight--) {
+            sum += (body % 10) * weight;
+            body /= 10;
+        }
+        return sum % 11;
+    }
+
+    /**
+     * Random unchangeable part of the KVNR (Krankenversichertennummer): one letter,
+     * eight digits and the check digit. The letter counts as its two-digit position
+     * in the alphabet, the digits are weighted alternately 1 and 2, two-digit products
+     * are replaced by their digit sum and the check digit is the total modulo 10.
+     */
+    public static String kvnr(Random random) {
+        char letter = (char) ('A' + random.nextInt(26));
+        int digits = random.nextInt(100_000_000);
+        String number = String.format("%02d%08d", letter - 'A' + 1, digits);
+
+        int sum = 0;
+        for (int i = 0; i < number.length(); i++) {
+            int product = (number.charAt(i) - '0') * (i % 2 == 0 ? 1 : 2);
+            sum += product / 10 + product % 10;
+        }
+        return letter + String.format("%08d", digits) + (sum % 10);
+    }
+}
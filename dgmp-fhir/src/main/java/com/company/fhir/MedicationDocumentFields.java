@@ -0,0 +1,35 @@
+package com.company.fhir;
+
+/**
+ * Supplies the per-document values of a medication document built by
+ * {@link SimpleMedicationDocumentService#buildDocument(MedicationDocumentFields, int)}.
+ *
+ * Every method is called exactly once per element, indexed methods once per MedicationStatement.
+ */
+interface MedicationDocumentFields {
+
+    String bundleId();
+
+    String compositionId();
+
+    String patientId();
+
+    String organizationId();
+
+    /**
+     * @return Timestamp in FHIR instant format, used for all date elements of the document
+     */
+    String timestamp();
+
+    String kvnr();
+
+    String medicationId(int index);
+
+    String statementId(int index);
+
+    String pzn(int index);
+
+    String pznDisplay(int index);
+
+    String dosage(int index);
+}
@@ -0,0 +1,78 @@
+package com.company.fhir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * High-throughput generator for medication documents used as load-test and integration fixtures.
+ * Uses a {@link MedicationDocumentTemplate} compiled once at startup.
+ *
+ * Can also be run standalone:
+ * MedicationDocumentGenerator &lt;output file&gt; &lt;document count&gt; [statements per document]
+ */
+@Service
+public class MedicationDocumentGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(MedicationDocumentGenerator.class);
+
+    private final MedicationDocumentTemplate template;
+
+    public MedicationDocumentGenerator(FhirContext context) {
+        this.template = MedicationDocumentTemplate.compile(context);
+    }
+
+    /**
+     * Creates one document as compact JSON
+     *
+     * @param statementCount Number of MedicationStatement entries, at least 1
+     */
+    public String createDocument(int statementCount) {
+        return template.createDocument(statementCount);
+    }
+
+    /**
+     * Writes the given number of documents as NDJSON, one document per line.
+     * The writer is not flushed or closed.
+     *
+     * @param out            Target, should be buffered
+     * @param count          Number of documents
+     * @param statementCount Number of MedicationStatement entries per document, at least 1
+     */
+    public void writeNdjson(Writer out, long count, int statementCount) throws IOException {
+        for (long i = 0; i < count; i++) {
+            template.writeDocument(out, statementCount);
+            out.write('\n');
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MedicationDocumentGenerator <output file> <document count> [statements per document]");
+            System.exit(1);
+        }
+        Path output = Path.of(args[0]);
+        long count = Long.parseLong(args[1]);
+        int statementCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        MedicationDocumentGenerator generator = new MedicationDocumentGenerator(FhirContext.forR4());
+        long start = System.nanoTime();
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8), 1 << 16)) {
+            generator.writeNdjson(writer, count, statementCount);
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Wrote {} documents with {} statements each to {} in {} ms ({} documents/s)",
+                count, statementCount, output, millis, count * 1000 / millis);
+    }
+}
@@ -0,0 +1,307 @@
+package com.company.fhir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ca.uhn.fhir.context.FhirContext;
+
+/**
+ * Precompiled medication document.
+ *
+ * The document is built once through {@link SimpleMedicationDocumentService} with placeholder
+ * values and encoded as compact JSON. Generating a document only writes the literal JSON parts
+ * and the per-document values (UUIDs, timestamp, KVNR, PZN, dosage), without building a HAPI
+ * object graph or running the parser.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class MedicationDocumentTemplate {
+
+    private static final String TIMESTAMP_SENTINEL = "1901-02-03T04:05:06.789Z";
+    private static final Pattern TIMESTAMP_PATTERN =
+            Pattern.compile("1901-02-03T04:05:06\\.789(Z|[+-]\\d{2}:\\d{2})");
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\$\\$([A-Z_]+)\\$\\$");
+
+    private static final String[] PRODUCTS = {
+            "Ibuprofen 400mg", "Metformin 1000mg", "Ramipril 5mg", "Simvastatin 20mg",
+            "Pantoprazol 40mg", "Amlodipin 5mg", "Levothyroxin 100 Mikrogramm", "Bisoprolol 2,5mg"
+    };
+    private static final String[] DOSAGES = {"1-0-0", "0-0-1", "1-0-1", "1-1-1", "0-1-0"};
+
+    private enum Field {
+        BUNDLE_ID, COMPOSITION_ID, PATIENT_ID, ORGANIZATION_ID, TIMESTAMP, KVNR,
+        MEDICATION_ID, STATEMENT_ID, PZN, PZN_DISPLAY, DOSAGE;
+
+        String token() {
+            return "$$" + name() + "$$";
+        }
+    }
+
+    private final Part head;
+    private final Part sectionEntry;
+    private final Part middle;
+    private final Part statementEntries;
+    private final Part tail;
+
+    private MedicationDocumentTemplate(Part head, Part sectionEntry, Part middle, Part statementEntries, Part tail) {
+        this.head = head;
+        this.sectionEntry = sectionEntry;
+        this.middle = middle;
+        this.statementEntries = statementEntries;
+        this.tail = tail;
+    }
+
+    /**
+     * Compiles the template from the document structure of {@link SimpleMedicationDocumentService}
+     *
+     * @param context The FHIR context used to encode the template once
+     * @return The compiled template
+     */
+    public static MedicationDocumentTemplate compile(FhirContext context) {
+        String json = context.newJsonParser().encodeResourceToString(
+                new SimpleMedicationDocumentService(context).buildDocument(new PlaceholderFields(), 1));
+        json = TIMESTAMP_PATTERN.matcher(json).replaceAll(Matcher.quoteReplacement(Field.TIMESTAMP.token()));
+
+        // Composition is the first entry and lists the statements in its section,
+        // the Medication/MedicationStatement pairs are the last entries of the Bundle
+        String sectionEntryJson = "{\"reference\":\"urn:uuid:" + Field.STATEMENT_ID.token() + "\"}";
+        String statementStartJson = "{\"fullUrl\":\"urn:uuid:" + Field.MEDICATION_ID.token() + "\"";
+        String tailJson = "]}";
+
+        int sectionStart = requireSingle(json, sectionEntryJson);
+        int sectionEnd = sectionStart + sectionEntryJson.length();
+        int statementStart = requireSingle(json, statementStartJson);
+        int statementEnd = json.length() - tailJson.length();
+        if (statementStart < sectionEnd || !json.endsWith(tailJson)) {
+            throw new IllegalStateException("Unexpected medication document layout: " + json);
+        }
+
+        return new MedicationDocumentTemplate(
+                Part.parse(json.substring(0, sectionStart)),
+                Part.parse(json.substring(sectionStart, sectionEnd)),
+                Part.parse(json.substring(sectionEnd, statementStart)),
+                Part.parse(json.substring(statementStart, statementEnd)),
+                Part.parse(tailJson));
+    }
+
+    private static int requireSingle(String json, String fragment) {
+        int index = json.indexOf(fragment);
+        if (index < 0 || json.indexOf(fragment, index + 1) >= 0) {
+            throw new IllegalStateException("Expected exactly one '" + fragment + "' in medication document template");
+        }
+        return index;
+    }
+
+    /**
+     * Creates one document as compact JSON
+     *
+     * @param statementCount Number of MedicationStatement entries, at least 1
+     */
+    public String createDocument(int statementCount) {
+        StringBuilder out = new StringBuilder(1024 + 1024 * statementCount);
+        try {
+            writeDocument(out, statementCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes one document as compact JSON on a single line
+     *
+     * @param out            Target, e.g. a buffered Writer
+     * @param statementCount Number of MedicationStatement entries, at least 1
+     */
+    public void writeDocument(Appendable out, int statementCount) throws IOException {
+        if (statementCount < 1) {
+            throw new IllegalArgumentException("A medication document needs at least one statement, was " + statementCount);
+        }
+        Values values = new Values(ThreadLocalRandom.current(), statementCount);
+
+        head.writeTo(out, values, 0);
+        for (int i = 0; i < statementCount; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            sectionEntry.writeTo(out, values, i);
+        }
+        middle.writeTo(out, values, 0);
+        for (int i = 0; i < statementCount; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            statementEntries.writeTo(out, values, i);
+        }
+        tail.writeTo(out, values, 0);
+    }
+
+    /**
+     * Literal JSON fragments alternating with fields: literal[0] field[0] literal[1] ... literal[n]
+     */
+    private static final class Part {
+
+        private final String[] literals;
+        private final Field[] fields;
+
+        private Part(String[] literals, Field[] fields) {
+            this.literals = literals;
+            this.fields = fields;
+        }
+
+        static Part parse(String json) {
+            List<String> literals = new ArrayList<>();
+            List<Field> fields = new ArrayList<>();
+            Matcher matcher = TOKEN_PATTERN.matcher(json);
+            int last = 0;
+            while (matcher.find()) {
+                literals.add(json.substring(last, matcher.start()));
+                fields.add(Field.valueOf(matcher.group(1)));
+                last = matcher.end();
+            }
+            literals.add(json.substring(last));
+            return new Part(literals.toArray(new String[0]), fields.toArray(new Field[0]));
+        }
+
+        void writeTo(Appendable out, Values values, int index) throws IOException {
+            for (int i = 0; i < fields.length; i++) {
+                out.append(literals[i]);
+                out.append(values.get(fields[i], index));
+            }
+            out.append(literals[fields.length]);
+        }
+    }
+
+    /**
+     * Per-document values. All values are JSON-safe and written without escaping.
+     */
+    private static final class Values {
+
+        private final String bundleId;
+        private final String compositionId;
+        private final String patientId;
+        private final String organizationId;
+        private final String timestamp;
+        private final String kvnr;
+        private final String[] medicationIds;
+        private final String[] statementIds;
+        private final String[] pzns;
+        private final String[] pznDisplays;
+        private final String[] dosages;
+
+        Values(ThreadLocalRandom random, int statementCount) {
+            bundleId = randomUuid(random);
+            compositionId = randomUuid(random);
+            patientId = randomUuid(random);
+            organizationId = randomUuid(random);
+            timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
+            kvnr = GeneratedIdentifiers.kvnr(random);
+            medicationIds = new String[statementCount];
+            statementIds = new String[statementCount];
+            pzns = new String[statementCount];
+            pznDisplays = new String[statementCount];
+            dosages = new String[statementCount];
+            for (int i = 0; i < statementCount; i++) {
+                medicationIds[i] = randomUuid(random);
+                statementIds[i] = randomUuid(random);
+                pzns[i] = GeneratedIdentifiers.pzn(random);
+                pznDisplays[i] = PRODUCTS[random.nextInt(PRODUCTS.length)];
+                dosages[i] = DOSAGES[random.nextInt(DOSAGES.length)];
+            }
+        }
+
+        String get(Field field, int index) {
+            return switch (field) {
+                case BUNDLE_ID -> bundleId;
+                case COMPOSITION_ID -> compositionId;
+                case PATIENT_ID -> patientId;
+                case ORGANIZATION_ID -> organizationId;
+                case TIMESTAMP -> timestamp;
+                case KVNR -> kvnr;
+                case MEDICATION_ID -> medicationIds[index];
+                case STATEMENT_ID -> statementIds[index];
+                case PZN -> pzns[index];
+                case PZN_DISPLAY -> pznDisplays[index];
+                case DOSAGE -> dosages[index];
+            };
+        }
+
+        /**
+         * Version 4 UUID from the thread-local generator, avoiding the SecureRandom of {@link UUID#randomUUID()}
+         */
+        private static String randomUuid(ThreadLocalRandom random) {
+            long most = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+            long least = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+            return new UUID(most, least).toString();
+        }
+    }
+
+    /**
+     * Emits the placeholder tokens the template is compiled from
+     */
+    private static final class PlaceholderFields implements MedicationDocumentFields {
+
+        @Override
+        public String bundleId() {
+            return Field.BUNDLE_ID.token();
+        }
+
+        @Override
+        public String compositionId() {
+            return Field.COMPOSITION_ID.token();
+        }
+
+        @Override
+        public String patientId() {
+            return Field.PATIENT_ID.token();
+        }
+
+        @Override
+        public String organizationId() {
+            return Field.ORGANIZATION_ID.token();
+        }
+
+        @Override
+        public String timestamp() {
+            return TIMESTAMP_SENTINEL;
+        }
+
+        @Override
+        public String kvnr() {
+            return Field.KVNR.token();
+        }
+
+        @Override
+        public String medicationId(int index) {
+            return Field.MEDICATION_ID.token();
+        }
+
+        @Override
+        public String statementId(int index) {
+            return Field.STATEMENT_ID.token();
+        }
+
+        @Override
+        public String pzn(int index) {
+            return Field.PZN.token();
+        }
+
+        @Override
+        public String pznDisplay(int index) {
+            return Field.PZN_DISPLAY.token();
+        }
+
+        @Override
+        public String dosage(int index) {
+            return Field.DOSAGE.token();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.company.fhir;
 
-import java.util.Date;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import org.hl7.fhir.r4.model.Bundle;
@@ -21,6 +24,8 @@ import ca.uhn.fhir.context.FhirContext;
 @Service
 public class SimpleMedicationDocumentService {
 
+    private static final MedicationDocumentFields DEFAULT_FIELDS = new SampleFields();
+
     private final FhirContext context;
 
     public SimpleMedicationDocumentService(FhirContext context) {
@@ -28,16 +33,37 @@ public class SimpleMedicationDocumentService {
     }
 
     public String createMedicationDocument() {
+        return createMedicationDocument(1);
+    }
+
+    /**
+     * Creates a medication document with the given number of MedicationStatements,
+     * each referencing its own Medication entry.
+     *
+     * @param statementCount Number of MedicationStatement entries
+     * @return The document Bundle as pretty-printed JSON
+     */
+    public String createMedicationDocument(int statementCount) {
+        return context.newJsonParser()
+                .setPrettyPrint(true)
+                .encodeResourceToString(buildDocument(DEFAULT_FIELDS, statementCount));
+    }
+
+    /**
+     * Builds the document Bundle with all per-document values taken from the given fields.
+     * Also used by {@link MedicationDocumentTemplate} to compile the template.
+     */
+    Bundle buildDocument(MedicationDocumentFields fields, int statementCount) {
 
         Bundle bundle = new Bundle();
         bundle.getMeta().addProfile(EpaProfiles.EPA_MEDICATION_BUNDLE);
         bundle.setType(Bundle.BundleType.DOCUMENT);
-        bundle.setTimestamp(new Date());
+        bundle.getTimestampElement().setValueAsString(fields.timestamp());
 
         bundle.setIdentifier(
                 new Identifier()
                         .setSystem("urn:ietf:rfc:3986")
-                        .setValue("urn:uuid:" + UUID.randomUUID())
+                        .setValue("urn:uuid:" + fields.bundleId())
         );
 
         bundle.getMeta().addSecurity(
@@ -49,17 +75,13 @@ public class SimpleMedicationDocumentService {
 
 
         // UUIDs
-        String compositionId = UUID.randomUUID().toString();
-        String patientId = UUID.randomUUID().toString();
-        String organizationId = UUID.randomUUID().toString();
-        String medicationId = UUID.randomUUID().toString();
-        String statementId = UUID.randomUUID().toString();
+        String compositionId = fields.compositionId();
+        String patientId = fields.patientId();
+        String organizationId = fields.organizationId();
 
         String compositionUrn = "urn:uuid:" + compositionId;
         String patientUrn = "urn:uuid:" + patientId;
         String organizationUrn = "urn:uuid:" + organizationId;
-        String medicationUrn = "urn:uuid:" + medicationId;
-        String statementUrn = "urn:uuid:" + statementId;
 
         // ======================
         // Patient
@@ -70,7 +92,7 @@ public class SimpleMedicationDocumentService {
 
         patient.addIdentifier()
             .setSystem("http://fhir.de/sid/gkv/kvid-10")
-            .setValue("X123456789");
+            .setValue(fields.kvnr());
 
         patient.addName()
                 .setFamily("Mustermann")
@@ -92,6 +114,61 @@ public class SimpleMedicationDocumentService {
                 .setFullUrl(organizationUrn)
                 .setResource(org);
 
+        List<String> statementUrns = new ArrayList<>();
+        for (int i = 0; i < statementCount; i++) {
+            statementUrns.add(addMedicationStatement(bundle, fields, i, patientUrn));
+        }
+
+        // ======================
+        // Composition
+        // ======================
+
+        Composition composition = new Composition();
+        composition.setId(compositionId);
+        composition.setStatus(Composition.CompositionStatus.FINAL);
+        composition.getDateElement().setValueAsString(fields.timestamp());
+        composition.setTitle("Medication Document");
+        composition.setSubject(new Reference(patientUrn));
+
+        composition.setType(new CodeableConcept()
+                .addCoding(new Coding()
+                        .setSystem("http://loinc.org")
+                        .setCode("56445-0")
+                        .setDisplay("Medication summary Document")));
+
+        composition.addAuthor(new Reference(organizationUrn));
+        composition.setCustodian(new Reference(organizationUrn));
+
+        Composition.SectionComponent section =
+                new Composition.SectionComponent();
+
+        section.setTitle("Medications");
+        section.setCode(new CodeableConcept()
+                .addCoding(new Coding()
+                        .setSystem("http://loinc.org")
+                        .setCode("10160-0")
+                        .setDisplay("History of Medication use")));
+
+        statementUrns.forEach(statementUrn -> section.addEntry(new Reference(statementUrn)));
+
+        composition.addSection(section);
+
+        bundle.getEntry().add(0,
+                new Bundle.BundleEntryComponent()
+                        .setFullUrl(compositionUrn)
+                        .setResource(composition)
+        );
+
+        return bundle;
+    }
+
+    private String addMedicationStatement(Bundle bundle, MedicationDocumentFields fields, int index, String patientUrn) {
+        String medicationId = fields.medicationId(index);
+        String statementId = fields.statementId(index);
+        String pzn = fields.pzn(index);
+        String medicationUrn = "urn:uuid:" + medicationId;
+        String statementUrn = "urn:uuid:" + statementId;
+
         // ======================
         // Medication
         // ======================
@@ -101,14 +178,14 @@ public class SimpleMedicationDocumentService {
 
         medication.addIdentifier()
             .setSystem("http://fhir.de/sid/pzn")
-            .setValue("12345678");        
+            .setValue(pzn);
 
         medication.setCode(new CodeableConcept()
             .addCoding(new Coding()
                 .setSystem("http://fhir.de/CodeSystem/ifa/pzn")
-                .setCode("12345678")
-                .setDisplay("Ibuprofen 400mg")));
-                
+                .setCode(pzn)
+                .setDisplay(fields.pznDisplay(index))));
+
         bundle.addEntry()
                 .setFullUrl(medicationUrn)
                 .setResource(medication);
@@ -127,70 +204,86 @@ public class SimpleMedicationDocumentService {
                 .setDisplay("normal")
         );
 
-       CodeableConcept category = new CodeableConcept();
-                category.addCoding(new Coding()
+        CodeableConcept category = new CodeableConcept();
+        category.addCoding(new Coding()
                 .setSystem("http://terminology.hl7.org/CodeSystem/medication-statement-category")
                 .setCode("community")
                 .setDisplay("Community"));
 
         statement.setCategory(category);
 
-
-
-
         statement.setStatus(MedicationStatement.MedicationStatementStatus.ACTIVE);
         statement.setSubject(new Reference(patientUrn));
         statement.setMedication(new Reference(medicationUrn));
-        statement.setDateAsserted(new Date());
+        statement.getDateAssertedElement().setValueAsString(fields.timestamp());
 
-        statement.addDosage(new Dosage().setText("1-0-1"));
+        statement.addDosage(new Dosage().setText(fields.dosage(index)));
 
         bundle.addEntry()
                 .setFullUrl(statementUrn)
                 .setResource(statement);
 
-        // ======================
-        // Composition
-        // ======================
-
-        Composition composition = new Composition();
-        composition.setId(compositionId);
-        composition.setStatus(Composition.CompositionStatus.FINAL);
-        composition.setDate(new Date());
-        composition.setTitle("Medication Document");
-        composition.setSubject(new Reference(patientUrn));
-
-        composition.setType(new CodeableConcept()
-                .addCoding(new Coding()
-                        .setSystem("http://loinc.org")
-                        .setCode("56445-0")
-                        .setDisplay("Medication summary Document")));
-
-        composition.addAuthor(new Reference(organizationUrn));
-        composition.setCustodian(new Reference(organizationUrn));
-
-        Composition.SectionComponent section =
-                new Composition.SectionComponent();
-
-        section.setTitle("Medications");
-        section.setCode(new CodeableConcept()
-                .addCoding(new Coding()
-                        .setSystem("http://loinc.org")
-                        .setCode("10160-0")
-                        .setDisplay("History of Medication use")));
-
-        section.addEntry(new Reference(statementUrn));
-
-        composition.addSection(section);
-
-        bundle.getEntry().add(0,
-                new Bundle.BundleEntryComponent()
-                        .setFullUrl(compositionUrn)
-                        .setResource(composition)
-        );
+        return statementUrn;
+    }
 
-        return context.newJsonParser()
-                .setPrettyPrint(true)
-                .encodeResourceToString(bundle);
+    /**
+     * Random ids with the fixed sample patient and medication
+     */
+    private static final class SampleFields implements MedicationDocumentFields {
+
+        @Override
+        public String bundleId() {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public String compositionId() {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public String patientId() {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public String organizationId() {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public String timestamp() {
+            return Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
+        }
+
+        @Override
+        public String kvnr() {
+            return "X123456789";
+        }
+
+        @Override
+        public String medicationId(int index) {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public String statementId(int index) {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public String pzn(int index) {
+            return "12345678";
+        }
+
+        @Override
+        public String pznDisplay(int index) {
+            return "Ibuprofen 400mg";
+        }
+
+        @Override
+        public String dosage(int index) {
+            return "1-0-1";
+        }
     }
 }
@@ -0,0 +1,78 @@
+package com.company.fhir;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeneratedIdentifiersTest {
+
+    @Test
+    void computesPznCheckDigit() {
+        // 1*1 + 2*2 + 3*3 + 4*4 + 5*5 + 6*6 + 7*7 = 140, 140 mod 11 = 8
+        assertThat(GeneratedIdentifiers.pznCheckDigit(1234567)).isEqualTo(8);
+        assertThat(GeneratedIdentifiers.pznCheckDigit(0)).isZero();
+    }
+
+    @Test
+    void reportsUnassignablePzn() {
+        // 7 * 7 = 49, 49 mod 11 = 5; 3 * 7 = 21, 21 mod 11 = 10
+        assertThat(GeneratedIdentifiers.pznCheckDigit(7)).isEqualTo(5);
+        assertThat(GeneratedIdentifiers.pznCheckDigit(3)).isEqualTo(10);
+    }
+
+    @Test
+    void generatesValidPzns() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            String pzn = GeneratedIdentifiers.pzn(random);
+
+            assertThat(pzn).matches("\\d{8}");
+            int sum = 0;
+            for (int digit = 0; digit < 7; digit++) {
+                sum += (pzn.charAt(digit) - '0') * (digit + 1);
+            }
+            assertThat(pzn.charAt(7) - '0').isEqualTo(sum % 11);
+        }
+    }
+
+    @Test
+    void generatesKnownKvnr() {
+        assertThat(GeneratedIdentifiers.kvnr(new FixedRandom(0, 12345678))).isEqualTo("A123456780");
+    }
+
+    @Test
+    void generatesValidKvnrs() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            String kvnr = GeneratedIdentifiers.kvnr(random);
+
+            assertThat(kvnr).matches("[A-Z]\\d{9}");
+            String number = String.format("%02d", kvnr.charAt(0) - 'A' + 1) + kvnr.substring(1, 9);
+            int sum = 0;
+            for (int digit = 0; digit < number.length(); digit++) {
+                int product = (number.charAt(digit) - '0') * (digit % 2 == 0 ? 1 : 2);
+                sum += product / 10 + product % 10;
+            }
+            assertThat(kvnr.charAt(9) - '0').isEqualTo(sum % 10);
+        }
+    }
+
+    /**
+     * Returns the given values from successive nextInt calls
+     */
+    private static class FixedRandom extends Random {
+        private final int[] values;
+        private int next;
+
+        FixedRandom(int... values) {
+            this.values = values;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return values[next++];
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.company.loadtest;
+
+import com.company.fhir.MedicationDocumentGenerator;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted mix of request bodies: the repository sample documents, generated medication documents
+ * and optionally large generated documents.
+ * All bodies are created up front so the load generator does not compete with the application for CPU.
+ */
+final class DocumentMix {
+
+    private static final int GENERATED_DOCUMENTS = 256;
+    private static final int LARGE_DOCUMENTS = 16;
+
+    private final List<byte[]> samples;
+    private final List<byte[]> generated;
+    private final List<byte[]> large;
+    private final int samplesWeight;
+    private final int generatedWeight;
+    private final int totalWeight;
+
+    private DocumentMix(List<byte[]> samples, List<byte[]> generated, List<byte[]> large,
+                        int samplesWeight, int generatedWeight, int largeWeight) {
+        this.samples = samples;
+        this.generated = generated;
+        this.large = large;
+        this.samplesWeight = samples.isEmpty() ? 0 : samplesWeight;
+        this.generatedWeight = generated.isEmpty() ? 0 : generatedWeight;
+        this.totalWeight = this.samplesWeight + this.generatedWeight + (large.isEmpty() ? 0 : largeWeight);
+        if (totalWeight == 0) {
+            throw new IllegalStateException("No documents available for the configured mix");
+        }
+    }
+
+    static DocumentMix create(LoadTestOptions options, MedicationDocumentGenerator generator) throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        if (options.samplesWeight > 0) {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:samples/*.json")) {
+                try (InputStream in = resource.getInputStream()) {
+                    samples.add(in.readAllBytes());
+                }
+            }
+        }
+
+        List<byte[]> generated = new ArrayList<>();
+        if (options.generatedWeight > 0) {
+            for (int i = 0; i < GENERATED_DOCUMENTS; i++) {
+                generated.add(generator.createDocument(options.statements).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        List<byte[]> large = new ArrayList<>();
+        if (options.largeWeight > 0) {
+            for (int i = 0; i < LARGE_DOCUMENTS; i++) {
+                large.add(generator.createDocument(options.largeStatements).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return new DocumentMix(samples, generated, large,
+                options.samplesWeight, options.generatedWeight, options.largeWeight);
+    }
+
+    byte[] next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(totalWeight);
+        List<byte[]> source = pick < samplesWeight ? samples : pick < samplesWeight + generatedWeight ? generated : large;
+        return source.get(random.nextInt(source.size()));
+    }
+
+    int getSampleCount() {
+        return samples.size();
+    }
+
+    int getGeneratedCount() {
+        return generated.size();
+    }
+
+    int getLargeCount() {
+        return large.size();
+    }
+}
@@ -0,0 +1,247 @@
+package com.company.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the validation endpoint and records latencies.
+ *
+ * With a target rate (open model) requests are issued on a fixed schedule and latency is
+ * measured from the scheduled start, so queueing in front of a saturated server is included
+ * (no coordinated omission). Without a rate (closed model) a fixed number of workers send
+ * requests back to back.
+ *
+ * Requests scheduled during the warm-up are not recorded. Responses 200 and 400 (document
+ * invalid) count as successful, everything else including I/O errors and timeouts as error.
+ */
+final class LoadGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final HttpClient client;
+    private final URI target;
+    private final DocumentMix mix;
+    private final LoadTestOptions options;
+    private final boolean reportHeap;
+
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final LongAdder intervalRequests = new LongAdder();
+    private final LongAdder intervalErrors = new LongAdder();
+    private long totalRequests;
+    private long totalErrors;
+    private long maxHeapUsed;
+    private long lastReportNanos;
+    private volatile long measureStartNanos;
+
+    LoadGenerator(HttpClient client, URI target, DocumentMix mix, LoadTestOptions options, boolean reportHeap) {
+        this.client = client;
+        this.target = target;
+        this.mix = mix;
+        this.options = options;
+        this.reportHeap = reportHeap;
+    }
+
+    void run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        measureStartNanos = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        lastReportNanos = measureStartNanos;
+        long end = measureStartNanos + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+        log.info("Load test against {}: {}, warm-up {} s, duration {} s",
+                target,
+                options.rate > 0
+                        ? options.rate + " req/s with at most " + options.concurrency + " outstanding"
+                        : options.concurrency + " concurrent workers",
+                options.warmupSeconds, options.durationSeconds);
+
+        HistogramLogWriter logWriter = null;
+        if (options.histogramLog != null) {
+            logWriter = new HistogramLogWriter(options.histogramLog.toFile());
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(System.currentTimeMillis());
+            logWriter.outputLegend();
+        }
+        HistogramLogWriter intervalLogWriter = logWriter;
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> report(intervalLogWriter),
+                options.warmupSeconds + options.reportIntervalSeconds,
+                options.reportIntervalSeconds,
+                TimeUnit.SECONDS);
+
+        try {
+            if (options.rate > 0) {
+                runOpen(start, end);
+            } else {
+                runClosed(end);
+            }
+        } finally {
+            reporter.shutdown();
+            reporter.awaitTermination(1, TimeUnit.MINUTES);
+            // Requests completed after the last report
+            report(intervalLogWriter);
+            if (logWriter != null) {
+                logWriter.close();
+            }
+        }
+    }
+
+    private void runClosed(long end) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency);
+        for (int i = 0; i < options.concurrency; i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    long requestStart = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request(), HttpResponse.BodyHandlers.discarding());
+                        record(requestStart, response, null);
+                    } catch (IOException e) {
+                        record(requestStart, null, e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(REQUEST_TIMEOUT.toSeconds() + 10, TimeUnit.SECONDS);
+    }
+
+    private void runOpen(long start, long end) throws InterruptedException {
+        Semaphore outstanding = new Semaphore(options.concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled >= end) {
+                break;
+            }
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            outstanding.acquire();
+            client.sendAsync(request(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        record(scheduled, response, error);
+                        outstanding.release();
+                    });
+        }
+
+        // Wait for the requests still in flight
+        if (!outstanding.tryAcquire(options.concurrency, REQUEST_TIMEOUT.toSeconds() + 10, TimeUnit.SECONDS)) {
+            log.warn("Requests still outstanding after the test ended");
+        }
+    }
+
+    private HttpRequest request() {
+        return HttpRequest.newBuilder(target)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mix.next()))
+                .build();
+    }
+
+    private void record(long startNanos, HttpResponse<?> response, Throwable error) {
+        if (startNanos < measureStartNanos) {
+            return;
+        }
+        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        intervalRequests.increment();
+        if (error != null || (response.statusCode() != 200 && response.statusCode() != 400)) {
+            intervalErrors.increment();
+        }
+    }
+
+    private synchronized void report(HistogramLogWriter logWriter) {
+        Histogram interval = recorder.getIntervalHistogram();
+        long requests = intervalRequests.sumThenReset();
+        long errors = intervalErrors.sumThenReset();
+        if (requests == 0 && interval.getTotalCount() == 0) {
+            return;
+        }
+        total.add(interval);
+        totalRequests += requests;
+        totalErrors += errors;
+
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastReportNanos) / 1e9;
+        lastReportNanos = now;
+        String heap = "";
+        if (reportHeap) {
+            MemoryUsage usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            maxHeapUsed = Math.max(maxHeapUsed, usage.getUsed());
+            heap = String.format("  heap=%d/%d MB", usage.getUsed() / MEGABYTE, usage.getCommitted() / MEGABYTE);
+        }
+        log.info(String.format("%8.1f req/s  %s  errors=%.2f%%%s",
+                requests / seconds, percentiles(interval), percent(errors, requests), heap));
+
+        if (logWriter != null) {
+            logWriter.outputIntervalHistogram(interval);
+        }
+    }
+
+    static String percentiles(Histogram histogram) {
+        return String.format("p50=%.1f ms  p90=%.1f ms  p99=%.1f ms  p99.9=%.1f ms  max=%.1f ms",
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    /**
+     * Latencies of the whole measurement in microseconds
+     */
+    synchronized Histogram getTotalHistogram() {
+        return total.copy();
+    }
+
+    synchronized long getTotalRequests() {
+        return totalRequests;
+    }
+
+    synchronized double getErrorRate() {
+        return totalRequests == 0 ? 0 : (double) totalErrors / totalRequests;
+    }
+
+    synchronized double getThroughput() {
+        return (double) totalRequests / options.durationSeconds;
+    }
+
+    synchronized long getMaxHeapUsed() {
+        return maxHeapUsed;
+    }
+}
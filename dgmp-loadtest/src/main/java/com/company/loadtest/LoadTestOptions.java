@@ -0,0 +1,86 @@
+package com.company.loadtest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of the load test.
+ *
+ * Options are given as --name=value. All other arguments are passed on to the
+ * in-process application, e.g. --hapi.fhir.validation.pool.size=8.
+ */
+final class LoadTestOptions {
+
+    /** Target base URL; if not set the application is started in-process */
+    String url;
+    String endpoint = "/api/validation/validate";
+    /** Requests per second (open model); 0 runs a closed model with {@link #concurrency} workers */
+    int rate = 0;
+    /** Workers in the closed model, maximum outstanding requests in the open model */
+    int concurrency = 16;
+    int warmupSeconds = 10;
+    int durationSeconds = 60;
+    int reportIntervalSeconds = 5;
+    /** Relative weight of the repository sample documents */
+    int samplesWeight = 1;
+    /** Relative weight of generated medication documents */
+    int generatedWeight = 1;
+    /** MedicationStatements per generated document */
+    int statements = 10;
+    /** Relative weight of large generated medication documents */
+    int largeWeight = 0;
+    /** MedicationStatements per large generated document */
+    int largeStatements = 200;
+    /** Optional HdrHistogram interval log for later comparison */
+    Path histogramLog;
+    /** Fails the run (exit code 1) above this error rate */
+    double maxErrorRate = 0.01;
+    /** Fails the run (exit code 1) above this p99 latency; 0 disables the check */
+    double maxP99Millis = 0;
+
+    final List<String> applicationArgs = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                options.applicationArgs.add(arg);
+                continue;
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "url" -> options.url = value;
+                case "endpoint" -> options.endpoint = value;
+                case "rate" -> options.rate = Integer.parseInt(value);
+                case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                case "report-interval" -> options.reportIntervalSeconds = Integer.parseInt(value);
+                case "samples-weight" -> options.samplesWeight = Integer.parseInt(value);
+                case "generated-weight" -> options.generatedWeight = Integer.parseInt(value);
+                case "statements" -> options.statements = Integer.parseInt(value);
+                case "large-weight" -> options.largeWeight = Integer.parseInt(value);
+                case "large-statements" -> options.largeStatements = Integer.parseInt(value);
+                case "histogram-log" -> options.histogramLog = Path.of(value);
+                case "max-error-rate" -> options.maxErrorRate = Double.parseDouble(value);
+                case "max-p99-ms" -> options.maxP99Millis = Double.parseDouble(value);
+                default -> options.applicationArgs.add(arg);
+            }
+        }
+
+        if (options.concurrency < 1) {
+            throw new IllegalArgumentException("--concurrency must be at least 1");
+        }
+        if (options.samplesWeight < 0 || options.generatedWeight < 0 || options.largeWeight < 0
+                || options.samplesWeight + options.generatedWeight + options.largeWeight == 0) {
+            throw new IllegalArgumentException("--samples-weight, --generated-weight and --large-weight must not all be 0");
+        }
+        return options;
+    }
+
+    boolean isInProcess() {
+        return url == null;
+    }
+}
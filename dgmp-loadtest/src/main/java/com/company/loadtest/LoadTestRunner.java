@@ -0,0 +1,128 @@
+package com.company.loadtest;
+
+import com.company.app.Application;
+import com.company.fhir.MedicationDocumentGenerator;
+import ca.uhn.fhir.context.FhirContext;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for the validation REST API.
+ *
+ * Starts the application in-process on a random port (or targets --url), waits for readiness,
+ * drives the validation endpoint with the configured document mix and reports throughput,
+ * latency percentiles, error rate and heap usage per interval. See {@link LoadTestOptions}.
+ *
+ * Exits with 1 if the error rate or p99 latency exceeds the configured limits.
+ */
+public final class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final long READINESS_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private LoadTestRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.url;
+        if (options.isInProcess()) {
+            context = new SpringApplicationBuilder(Application.class)
+                    .properties("server.port=0")
+                    .run(options.applicationArgs.toArray(new String[0]));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+        }
+
+        boolean passed;
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            awaitReadiness(client, baseUrl);
+
+            MedicationDocumentGenerator generator = context != null
+                    ? context.getBean(MedicationDocumentGenerator.class)
+                    : new MedicationDocumentGenerator(FhirContext.forR4());
+            DocumentMix mix = DocumentMix.create(options, generator);
+            log.info("Document mix: {} sample documents (weight {}), {} generated documents with {} statements (weight {}), "
+                            + "{} large documents with {} statements (weight {})",
+                    mix.getSampleCount(), options.samplesWeight,
+                    mix.getGeneratedCount(), options.statements, options.generatedWeight,
+                    mix.getLargeCount(), options.largeStatements, options.largeWeight);
+
+            LoadGenerator loadGenerator = new LoadGenerator(
+                    client, URI.create(baseUrl + options.endpoint), mix, options, options.isInProcess());
+            loadGenerator.run();
+            passed = summarize(loadGenerator, options);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void awaitReadiness(HttpClient client, String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        long deadline = System.currentTimeMillis() + READINESS_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    log.info("{} is ready", baseUrl);
+                    return;
+                }
+            } catch (IOException e) {
+                log.debug("Readiness check failed: {}", e.getMessage());
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(baseUrl + " not ready within " + READINESS_TIMEOUT_MILLIS + " ms");
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    private static boolean summarize(LoadGenerator run, LoadTestOptions options) {
+        Histogram latencies = run.getTotalHistogram();
+        double p99Millis = latencies.getValueAtPercentile(99) / 1000.0;
+
+        log.info("==== Summary ====");
+        log.info("Requests:   {}", run.getTotalRequests());
+        log.info(String.format("Throughput: %.1f req/s", run.getThroughput()));
+        log.info("Latency:    {}", LoadGenerator.percentiles(latencies));
+        log.info(String.format("Errors:     %.2f%%", run.getErrorRate() * 100));
+        if (options.isInProcess()) {
+            log.info("Max heap:   {} MB", run.getMaxHeapUsed() / (1024 * 1024));
+        }
+
+        boolean passed = true;
+        if (run.getErrorRate() > options.maxErrorRate) {
+            log.error(String.format("Error rate %.2f%% exceeds limit of %.2f%%",
+                    run.getErrorRate() * 100, options.maxErrorRate * 100));
+            passed = false;
+        }
+        if (options.maxP99Millis > 0 && p99Millis > options.maxP99Millis) {
+            log.error(String.format("p99 latency %.1f ms exceeds limit of %.1f ms", p99Millis, options.maxP99Millis));
+            passed = false;
+        }
+        return passed;
+    }
+}
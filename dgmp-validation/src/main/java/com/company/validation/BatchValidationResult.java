@@ -0,0 +1,25 @@
+package com.company.validation;
+
+/**
+ * Validation result of a single document within a batch
+ */
+public class BatchValidationResult {
+    private final int index;
+    private final ValidationResponse response;
+
+    public BatchValidationResult(int index, ValidationResponse response) {
+        this.index = index;
+        this.response = response;
+    }
+
+    /**
+     * @return Zero-based position of the document in the batch input
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public ValidationResponse getResponse() {
+        return response;
+    }
+}
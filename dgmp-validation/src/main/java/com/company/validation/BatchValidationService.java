@@ -0,0 +1,160 @@
+package com.company.validation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Service for validating large numbers of documents in parallel.
+ *
+ * Documents are pulled from the input only when a slot is free, so at most
+ * {@code max-in-flight} documents are held in memory regardless of batch size.
+ * Each document then waits for admission like a single validation request.
+ * Results are handed out in completion order, not in input order.
+ */
+@Service
+public class BatchValidationService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchValidationService.class);
+
+    private final EpaMedicationValidationService validationService;
+    private final ValidationAdmissionControl admissionControl;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    public BatchValidationService(
+            EpaMedicationValidationService validationService,
+            ValidationAdmissionControl admissionControl,
+            ValidatorPool validatorPool,
+            @Value("${hapi.fhir.validation.batch.max-in-flight:0}") int maxInFlight) {
+        this.validationService = validationService;
+        this.admissionControl = admissionControl;
+        int parallelism = validatorPool.getSize();
+        this.executor = Executors.newFixedThreadPool(parallelism, new BatchThreadFactory());
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : parallelism * 2;
+    }
+
+    /**
+     * Validates all documents at the default level, see {@link #validateAll(Iterator, ValidationLevel, Consumer)}
+     */
+    public int validateAll(Iterator<String> documents, Consumer<BatchValidationResult> sink)
+            throws InterruptedException {
+        return validateAll(documents, null, sink);
+    }
+
+    /**
+     * Validates all documents and passes each result to the sink as soon as it is available.
+     * Calls to the sink are serialized. If the sink or the input fails, or admission control
+     * rejects a document, no further documents are read and the failure is rethrown once all
+     * running validations have finished. A document for which no validator became available
+     * in time gets an error result.
+     *
+     * @param documents FHIR JSON documents
+     * @param level The validation level, or {@code null} for the default level
+     * @param sink Receiver of the individual results
+     * @return Number of documents validated
+     */
+    public int validateAll(Iterator<String> documents, ValidationLevel level, Consumer<BatchValidationResult> sink)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(maxInFlight);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Object sinkLock = new Object();
+        int count = 0;
+
+        try {
+            while (failure.get() == null) {
+                // Take the slot before reading, as hasNext() already buffers the next document
+                permits.acquire();
+                String document;
+                try {
+                    document = failure.get() == null && documents.hasNext() ? documents.next() : null;
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                if (document == null) {
+                    permits.release();
+                    break;
+                }
+                ValidationAdmissionControl.Permit admission;
+                try {
+                    // Waits for the batch's own documents to finish rather than timing out on them
+                    admission = admissionControl.acquireWithoutTimeout(ValidationMetrics.utf8Length(document));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                int index = count++;
+                submit(() -> {
+                    try (admission) {
+                        ValidationResponse response;
+                        try {
+                            response = validationService.validateJson(document, level);
+                        } catch (ValidatorPoolExhaustedException e) {
+                            response = ValidationResponse.error("Validation error: " + e.getMessage());
+                        }
+                        synchronized (sinkLock) {
+                            if (failure.get() == null) {
+                                sink.accept(new BatchValidationResult(index, response));
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                }, permits, admission);
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            // Wait for all submitted documents to finish
+            permits.acquire(maxInFlight);
+            permits.release(maxInFlight);
+        }
+
+        if (failure.get() != null) {
+            log.warn("Batch validation aborted after {} documents: {}", count, failure.get().getMessage());
+            throw failure.get();
+        }
+        log.info("Batch validation finished: {} documents", count);
+        return count;
+    }
+
+    private void submit(Runnable task, Semaphore permits, ValidationAdmissionControl.Permit admission) {
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            admission.close();
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static class BatchThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "batch-validation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.BaseValidationSupportWrapper;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.StructureDefinition;
+
+import java.util.List;
+
+/**
+ * Hides all StructureDefinitions outside the FHIR core specification, so resources are
+ * validated against the base definitions only, even if meta.profile declares an EPA profile.
+ * Everything else is delegated, including the caches of the wrapped support.
+ */
+class CoreProfilesOnlyValidationSupport extends BaseValidationSupportWrapper {
+
+    private static final String CORE_PREFIX = "http://hl7.org/fhir/StructureDefinition/";
+
+    CoreProfilesOnlyValidationSupport(FhirContext fhirContext, IValidationSupport wrapped) {
+        super(fhirContext, wrapped);
+    }
+
+    @Override
+    public IBaseResource fetchStructureDefinition(String url) {
+        return isCore(url) ? super.fetchStructureDefinition(url) : null;
+    }
+
+    @Override
+    public <T extends IBaseResource> List<T> fetchAllStructureDefinitions() {
+        List<T> structureDefinitions = super.fetchAllStructureDefinitions();
+        return structureDefinitions == null ? null : structureDefinitions.stream()
+                .filter(resource -> !(resource instanceof StructureDefinition sd) || isCore(sd.getUrl()))
+                .toList();
+    }
+
+    @Override
+    public <T extends IBaseResource> T fetchResource(Class<T> type, String uri) {
+        T resource = super.fetchResource(type, uri);
+        if (resource instanceof StructureDefinition structureDefinition && !isCore(structureDefinition.getUrl())) {
+            return null;
+        }
+        return resource;
+    }
+
+    private static boolean isCore(String url) {
+        return url != null && url.startsWith(CORE_PREFIX);
+    }
+}
@@ -0,0 +1,121 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.FhirTerser;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Composition;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cheap structural checks of EPA document Bundles, run before the FhirInstanceValidator:
+ * Bundle.type is document, meta.profile is present, the Composition is the first entry
+ * and every reference resolves to a fullUrl within the Bundle.
+ *
+ * In fail-fast mode a Bundle failing these checks is rejected without running the
+ * instance validator; otherwise the findings are reported along with its results.
+ */
+@Component
+public class DocumentBundlePreValidator {
+
+    private final FhirTerser terser;
+    private final boolean enabled;
+    private final boolean failFast;
+
+    public DocumentBundlePreValidator(
+            FhirContext fhirContext,
+            @Value("${hapi.fhir.validation.pre-check.enabled:true}") boolean enabled,
+            @Value("${hapi.fhir.validation.pre-check.fail-fast:true}") boolean failFast) {
+        this.terser = fhirContext.newTerser();
+        this.enabled = enabled;
+        this.failFast = failFast;
+    }
+
+    /**
+     * Checks the document invariants in a single pass over the Bundle entries
+     *
+     * @param resource The parsed resource; anything other than a Bundle passes
+     * @return The violations as ERROR messages, empty if the resource passes
+     */
+    public List<ValidationMessage> check(IBaseResource resource) {
+        if (!enabled || !(resource instanceof Bundle bundle)) {
+            return List.of();
+        }
+
+        List<ValidationMessage> errors = new ArrayList<>();
+        if (bundle.getType() != Bundle.BundleType.DOCUMENT) {
+            errors.add(error("Bundle.type", "Bundle.type must be 'document' but is '"
+                    + (bundle.hasType() ? bundle.getType().toCode() : "") + "'"));
+        }
+        if (!bundle.getMeta().hasProfile()) {
+            errors.add(error("Bundle.meta.profile", "Bundle.meta.profile is missing"));
+        }
+        if (bundle.getEntry().isEmpty() || !(bundle.getEntryFirstRep().getResource() instanceof Composition)) {
+            errors.add(error("Bundle.entry[0]", "The first entry of a document Bundle must be a Composition"));
+        }
+
+        Set<String> fullUrls = new HashSet<>();
+        List<String> references = new ArrayList<>();
+        List<String> locations = new ArrayList<>();
+        for (int i = 0; i < bundle.getEntry().size(); i++) {
+            Bundle.BundleEntryComponent entry = bundle.getEntry().get(i);
+            if (entry.hasFullUrl()) {
+                addFullUrl(fullUrls, entry.getFullUrl());
+            }
+            Resource entryResource = entry.getResource();
+            if (entryResource == null) {
+                continue;
+            }
+            for (Reference reference : terser.getAllPopulatedChildElementsOfType(entryResource, Reference.class)) {
+                String target = reference.getReference();
+                if (target != null && !target.startsWith("#")) {
+                    references.add(target);
+                    locations.add("Bundle.entry[" + i + "].resource");
+                }
+            }
+        }
+
+        for (int i = 0; i < references.size(); i++) {
+            if (!fullUrls.contains(references.get(i))) {
+                errors.add(error(locations.get(i),
+                        "Reference '" + references.get(i) + "' does not match any Bundle.entry.fullUrl"));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Registers the fullUrl and, for RESTful URLs, the relative form Type/id references may use
+     */
+    private void addFullUrl(Set<String> fullUrls, String fullUrl) {
+        fullUrls.add(fullUrl);
+        if (fullUrl.startsWith("urn:")) {
+            return;
+        }
+        int idStart = fullUrl.lastIndexOf('/');
+        int typeStart = idStart > 0 ? fullUrl.lastIndexOf('/', idStart - 1) : -1;
+        if (typeStart >= 0) {
+            fullUrls.add(fullUrl.substring(typeStart + 1));
+        }
+    }
+
+    private ValidationMessage error(String location, String message) {
+        return new ValidationMessage("ERROR", location, message);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+}
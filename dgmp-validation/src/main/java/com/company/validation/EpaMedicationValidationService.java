@@ -1,8 +1,6 @@
 package com.company.validation;
 
 import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
-import ca.uhn.fhir.validation.FhirValidator;
 import ca.uhn.fhir.validation.ResultSeverityEnum;
 import ca.uhn.fhir.validation.SingleValidationMessage;
 import ca.uhn.fhir.validation.ValidationResult;
@@ -10,30 +8,77 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
- * Service for validating FHIR resources against EPA Medication profiles
+ * Service for validating FHIR resources against EPA Medication profiles.
+ * All validations throw {@link ValidatorPoolExhaustedException} when no validator becomes available in time.
  */
 @Service
-public class EpaMedicationValidationService {
+public class EpaMedicationValidationService implements DisposableBean {
 
     private static final Logger log = LoggerFactory.getLogger(EpaMedicationValidationService.class);
 
-    private final FhirValidator fhirValidator;
+    private final EpaPackageVersions packageVersions;
+    private final ValidatorPools validatorPools;
+    private final ProfileRouter profileRouter;
+    private final ValidationResultCache resultCache;
+    private final ValidationMetrics metrics;
+    private final DocumentBundlePreValidator preValidator;
     private final FhirContext fhirContext;
-    private final IParser jsonParser;
+    private final long maxPayloadBytes;
+    private final int maxReportedErrors;
+    private final long maxTimeNanos;
+    private final ValidationTimeLimit timeLimit;
 
+    /**
+     * @param maxReportedErrors Number of errors reported, further errors are dropped from the response; 0 for no limit.
+     *                          The instance validator has no hook to stop at an error count, so this saves no CPU
+     * @param maxTimeMillis Wall time after which the instance validation is abandoned, or 0 for no limit
+     * @param runThreads Threads running validations under the time limit, 0 for the validator pool size
+     */
     public EpaMedicationValidationService(
-            FhirValidator fhirValidator,
+            EpaPackageVersions packageVersions,
+            ProfileRouter profileRouter,
+            ValidationResultCache resultCache,
+            ValidationMetrics metrics,
+            DocumentBundlePreValidator preValidator,
             FhirContext fhirContext,
-            IParser jsonParser) {
-        this.fhirValidator = fhirValidator;
+            @Value("${hapi.fhir.validation.max-payload-bytes:10485760}") long maxPayloadBytes,
+            @Value("${hapi.fhir.validation.limits.max-reported-errors:${hapi.fhir.validation.limits.max-errors:0}}") int maxReportedErrors,
+            @Value("${hapi.fhir.validation.limits.max-time-ms:0}") long maxTimeMillis,
+            @Value("${hapi.fhir.validation.limits.run-threads:0}") int runThreads) {
+        this.packageVersions = packageVersions;
+        this.validatorPools = packageVersions.getDefaultPools();
+        this.profileRouter = profileRouter;
+        this.resultCache = resultCache;
+        this.metrics = metrics;
+        this.preValidator = preValidator;
         this.fhirContext = fhirContext;
-        this.jsonParser = jsonParser;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.maxReportedErrors = maxReportedErrors;
+        this.maxTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxTimeMillis);
+        this.timeLimit = new ValidationTimeLimit(maxTimeNanos, runThreads > 0 ? runThreads : validatorPools.getSize());
+    }
+
+    public long getMaxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    @Override
+    public void destroy() {
+        timeLimit.close();
     }
 
     /**
@@ -43,57 +88,348 @@ public class EpaMedicationValidationService {
      * @return ValidationResponse with results
      */
     public ValidationResponse validateBundle(Bundle bundle) {
-        log.info("Validating Bundle: {}", bundle.getId());
+        log.debug("Validating Bundle: {}", bundle.getId());
         return validate(bundle);
     }
 
     /**
-     * Validates a FHIR resource from JSON string
+     * Validates a FHIR resource from JSON string at the default level
      *
      * @param jsonContent The JSON content
      * @return ValidationResponse with results
      */
     public ValidationResponse validateJson(String jsonContent) {
-        log.info("Parsing and validating JSON content");
+        return validateJson(jsonContent, null);
+    }
+
+    /**
+     * Validates a FHIR resource from JSON string
+     *
+     * @param jsonContent The JSON content
+     * @param level The validation level, or {@code null} for the default level
+     * @return ValidationResponse with results
+     */
+    public ValidationResponse validateJson(String jsonContent, ValidationLevel level) {
+        ValidationLevel appliedLevel = validatorPools.resolve(level);
+        String cacheKey = ValidationResultCache.withLevel(resultCache.keyFor(jsonContent), appliedLevel);
+        ValidationResponse cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("Returning cached validation result");
+            return cached;
+        }
+
+        // Parsed outside the validator pool, as the package version to validate against is declared in the document
+        log.debug("Parsing and validating JSON content");
+        long start = System.nanoTime();
+        IBaseResource resource;
         try {
-            IBaseResource resource = jsonParser.parseResource(jsonContent);
-            return validate(resource);
+            resource = fhirContext.newJsonParser().parseResource(jsonContent);
         } catch (Exception e) {
+            metrics.recordPhase(ValidationMetrics.PHASE_PARSE, ValidationMetrics.PROFILE_UNKNOWN,
+                    ValidationMetrics.OUTCOME_ERROR, System.nanoTime() - start);
             log.error("Failed to parse JSON: {}", e.getMessage());
             return ValidationResponse.error("Failed to parse JSON: " + e.getMessage());
         }
+        long parseNanos = System.nanoTime() - start;
+        return execute(resource, appliedLevel, cacheKey, ValidationMetrics.utf8Length(jsonContent), parseNanos);
     }
 
     /**
-     * Validates any FHIR resource
+     * Validates a FHIR resource from UTF-8 encoded JSON bytes
+     *
+     * @param jsonContent The JSON content
+     * @param level The validation level, or {@code null} for the default level
+     * @return ValidationResponse with results
+     * @throws PayloadTooLargeException if the content exceeds the maximum payload size
+     */
+    public ValidationResponse validateJson(byte[] jsonContent, ValidationLevel level) {
+        if (jsonContent.length > maxPayloadBytes) {
+            throw new PayloadTooLargeException(maxPayloadBytes);
+        }
+        ValidationLevel appliedLevel = validatorPools.resolve(level);
+        String cacheKey = ValidationResultCache.withLevel(resultCache.keyFor(jsonContent), appliedLevel);
+        ValidationResponse cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("Returning cached validation result");
+            return cached;
+        }
+        return validateStream(new ByteArrayInputStream(jsonContent), appliedLevel, null, cacheKey);
+    }
+
+    /**
+     * Validates a FHIR resource parsed directly from a UTF-8 encoded JSON stream,
+     * without buffering the payload. The maximum payload size is enforced while reading.
+     * The stream is not closed.
+     *
+     * @param jsonContent The JSON content
+     * @param level The validation level, or {@code null} for the default level
+     * @return ValidationResponse with results
+     * @throws PayloadTooLargeException if the stream exceeds the maximum payload size
+     */
+    public ValidationResponse validateJson(InputStream jsonContent, ValidationLevel level) {
+        return validateStream(jsonContent, validatorPools.resolve(level), resultCache.newFingerprint(), null);
+    }
+
+    /**
+     * Parses outside the validator pool, so slow uploads never hold a pooled validator.
+     * When a fingerprint is given, the cache is consulted once the payload is read.
+     */
+    private ValidationResponse validateStream(InputStream jsonContent,
+                                              ValidationLevel level,
+                                              PayloadFingerprint fingerprint,
+                                              String cacheKey) {
+        log.debug("Parsing and validating JSON stream");
+        PayloadInputStream payload = new PayloadInputStream(jsonContent, maxPayloadBytes, fingerprint);
+
+        long start = System.nanoTime();
+        IBaseResource resource;
+        try {
+            resource = fhirContext.newJsonParser()
+                    .parseResource(new InputStreamReader(payload, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            if (payload.isLimitExceeded()) {
+                throw new PayloadTooLargeException(maxPayloadBytes);
+            }
+            metrics.recordPhase(ValidationMetrics.PHASE_PARSE, ValidationMetrics.PROFILE_UNKNOWN,
+                    ValidationMetrics.OUTCOME_ERROR, System.nanoTime() - start);
+            log.error("Failed to parse JSON: {}", e.getMessage());
+            return ValidationResponse.error("Failed to parse JSON: " + e.getMessage());
+        }
+        long parseNanos = System.nanoTime() - start;
+
+        String key = fingerprint != null
+                ? ValidationResultCache.withLevel(resultCache.keyFor(fingerprint), level)
+                : cacheKey;
+        if (fingerprint != null) {
+            ValidationResponse cached = resultCache.get(key);
+            if (cached != null) {
+                log.debug("Returning cached validation result");
+                return cached;
+            }
+        }
+
+        return execute(resource, level, key, payload.getBytesRead(), parseNanos);
+    }
+
+    /**
+     * Validates any FHIR resource at the default level
      *
      * @param resource The resource to validate
      * @return ValidationResponse with results
      */
     public ValidationResponse validate(IBaseResource resource) {
+        return validate(resource, null);
+    }
+
+    /**
+     * Validates any FHIR resource
+     *
+     * @param resource The resource to validate
+     * @param level The validation level, or {@code null} for the default level
+     * @return ValidationResponse with results
+     */
+    public ValidationResponse validate(IBaseResource resource, ValidationLevel level) {
+        ValidationLevel appliedLevel = validatorPools.resolve(level);
+        return execute(resource, appliedLevel, null, -1, -1);
+    }
+
+    /**
+     * Runs the structural pre-check, then the validation on a validator of the package version
+     * the document declares, for the default version on the route of its profile. Documents
+     * rejected by a fail-fast pre-check never wait for a validator.
+     *
+     * @param payloadSize Size of the parsed JSON in UTF-8 bytes, or -1 if validated from an object
+     * @param parseNanos Time spent parsing, or -1 if validated from an object
+     * @throws ValidatorPoolExhaustedException if no validator became available in time
+     */
+    private ValidationResponse execute(IBaseResource resource,
+                                       ValidationLevel level,
+                                       String cacheKey,
+                                       long payloadSize,
+                                       long parseNanos) {
+        String profile = ValidationMetrics.profileTag(resource);
+        List<ValidationMessage> preCheckErrors;
         try {
-            ValidationResult result = fhirValidator.validateWithResult(resource);
+            preCheckErrors = preCheck(resource, profile);
+        } catch (RuntimeException e) {
+            metrics.recordDocument(profile, ValidationMetrics.OUTCOME_ERROR, payloadSize, entryCount(resource), 1);
+            log.error("Validation error: {}", e.getMessage(), e);
+            return ValidationResponse.error("Validation error: " + e.getMessage());
+        }
+        if (!preCheckErrors.isEmpty() && preValidator.isFailFast()) {
+            return rejectedByPreCheck(resource, level, preCheckErrors, profile, cacheKey, payloadSize, parseNanos);
+        }
+        Function<PooledValidator, ValidationResponse> work = pooled ->
+                validate(pooled, level, resource, profile, preCheckErrors, cacheKey, payloadSize, parseNanos);
 
-            List<ValidationMessage> messages = result.getMessages().stream()
-                    .map(this::convertMessage)
-                    .collect(Collectors.toList());
+        ValidatorPools pools;
+        try {
+            pools = packageVersions.poolsFor(resource);
+        } catch (IllegalStateException e) {
+            log.error("Package version of the document not available: {}", e.getMessage());
+            return ValidationResponse.error("Validation error: " + e.getMessage());
+        }
+        try {
+            return pools == validatorPools
+                    ? profileRouter.execute(resource, level, work)
+                    : pools.get(level).execute(work);
+        } catch (ValidatorPoolExhaustedException e) {
+            log.warn("Validation rejected: {}", e.getMessage());
+            throw e;
+        }
+    }
 
-            boolean isValid = result.isSuccessful();
+    /**
+     * @param preCheckErrors Errors of the structural pre-check, reported along with the validator messages
+     */
+    private ValidationResponse validate(PooledValidator pooled,
+                                        ValidationLevel level,
+                                        IBaseResource resource,
+                                        String profile,
+                                        List<ValidationMessage> preCheckErrors,
+                                        String cacheKey,
+                                        long payloadSize,
+                                        long parseNanos) {
+        try {
+            long start = System.nanoTime();
+            ValidationResult result;
+            try {
+                result = timeLimit.validate(pooled, resource);
+            } catch (ValidationTimeExceededException e) {
+                return timedOut(resource, level, preCheckErrors, profile, payloadSize, parseNanos, System.nanoTime() - start);
+            }
+            long validated = System.nanoTime();
+
+            List<ValidationMessage> messages = new ArrayList<>(preCheckErrors);
+            boolean truncated = convertMessages(result, messages);
+            long converted = System.nanoTime();
+
+            boolean isValid = result.isSuccessful() && preCheckErrors.isEmpty();
+            String outcome = isValid ? ValidationMetrics.OUTCOME_VALID : ValidationMetrics.OUTCOME_INVALID;
+
+            if (parseNanos >= 0) {
+                metrics.recordPhase(ValidationMetrics.PHASE_PARSE, profile, outcome, parseNanos);
+            }
+            metrics.recordPhase(ValidationMetrics.PHASE_INSTANCE_VALIDATION, profile, outcome, validated - start);
+            metrics.recordPhase(ValidationMetrics.PHASE_CONVERSION, profile, outcome, converted - validated);
+            metrics.recordDocument(profile, outcome, payloadSize, entryCount(resource), messages.size());
+            if (truncated) {
+                metrics.recordTruncated(profile, ValidationMetrics.TRUNCATED_ERRORS);
+            }
 
             if (isValid) {
-                log.info("Validation successful");
+                log.debug("Validation successful");
             } else {
-                log.warn("Validation failed with {} issues", messages.size());
+                log.debug("Validation failed with {} issues", messages.size());
             }
 
-            return new ValidationResponse(isValid, messages);
+            // Capping the errors is deterministic, so truncated results are cached as well
+            ValidationResponse response = new ValidationResponse(isValid, messages, level, truncated);
+            resultCache.put(cacheKey, response);
+            return response;
 
         } catch (Exception e) {
+            metrics.recordDocument(profile, ValidationMetrics.OUTCOME_ERROR, payloadSize, entryCount(resource), 1);
             log.error("Validation error: {}", e.getMessage(), e);
             return ValidationResponse.error("Validation error: " + e.getMessage());
         }
     }
 
+    private List<ValidationMessage> preCheck(IBaseResource resource, String profile) {
+        if (!preValidator.isEnabled()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<ValidationMessage> errors = preValidator.check(resource);
+        metrics.recordPhase(ValidationMetrics.PHASE_PRE_CHECK, profile,
+                errors.isEmpty() ? ValidationMetrics.OUTCOME_VALID : ValidationMetrics.OUTCOME_INVALID,
+                System.nanoTime() - start);
+        return errors;
+    }
+
+    /**
+     * Fail-fast result of the structural pre-check, the instance validator is not run
+     */
+    private ValidationResponse rejectedByPreCheck(IBaseResource resource,
+                                                  ValidationLevel level,
+                                                  List<ValidationMessage> errors,
+                                                  String profile,
+                                                  String cacheKey,
+                                                  long payloadSize,
+                                                  long parseNanos) {
+        if (parseNanos >= 0) {
+            metrics.recordPhase(ValidationMetrics.PHASE_PARSE, profile, ValidationMetrics.OUTCOME_INVALID, parseNanos);
+        }
+        metrics.recordDocument(profile, ValidationMetrics.OUTCOME_INVALID, payloadSize, entryCount(resource), errors.size());
+        log.debug("Rejected by structural pre-check with {} issues", errors.size());
+
+        ValidationResponse response = new ValidationResponse(false, errors, level);
+        resultCache.put(cacheKey, response);
+        return response;
+    }
+
+    /**
+     * Converts the validator messages, keeping at most {@code maxReportedErrors} errors.
+     * Only trims the response: the validation itself has already run to completion and used
+     * the full CPU time, as the instance validator offers no way to stop at an error count.
+     *
+     * @return Whether errors were dropped
+     */
+    private boolean convertMessages(ValidationResult result, List<ValidationMessage> messages) {
+        int errors = 0;
+        int omitted = 0;
+        for (SingleValidationMessage msg : result.getMessages()) {
+            ResultSeverityEnum severity = msg.getSeverity();
+            boolean error = severity == ResultSeverityEnum.ERROR || severity == ResultSeverityEnum.FATAL;
+            if (error && maxReportedErrors > 0 && errors >= maxReportedErrors) {
+                omitted++;
+                continue;
+            }
+            if (error) {
+                errors++;
+            }
+            messages.add(convertMessage(msg));
+        }
+        if (omitted > 0) {
+            messages.add(new ValidationMessage("INFORMATION", "",
+                    omitted + " further errors omitted after the first " + maxReportedErrors));
+        }
+        return omitted > 0;
+    }
+
+    /**
+     * Result of a validation stopped at the time budget. It is not cached, as a
+     * later attempt on a less loaded instance may well finish in time.
+     */
+    private ValidationResponse timedOut(IBaseResource resource,
+                                        ValidationLevel level,
+                                        List<ValidationMessage> preCheckErrors,
+                                        String profile,
+                                        long payloadSize,
+                                        long parseNanos,
+                                        long validationNanos) {
+        if (parseNanos >= 0) {
+            metrics.recordPhase(ValidationMetrics.PHASE_PARSE, profile, ValidationMetrics.OUTCOME_INVALID, parseNanos);
+        }
+        metrics.recordPhase(ValidationMetrics.PHASE_INSTANCE_VALIDATION, profile,
+                ValidationMetrics.OUTCOME_INVALID, validationNanos);
+        metrics.recordTruncated(profile, ValidationMetrics.TRUNCATED_TIME);
+
+        List<ValidationMessage> messages = new ArrayList<>(preCheckErrors);
+        messages.add(new ValidationMessage("ERROR", "", "Validation stopped after "
+                + TimeUnit.NANOSECONDS.toMillis(validationNanos) + " ms, the time limit is "
+                + TimeUnit.NANOSECONDS.toMillis(maxTimeNanos) + " ms"));
+        metrics.recordDocument(profile, ValidationMetrics.OUTCOME_INVALID, payloadSize, entryCount(resource), messages.size());
+        log.warn("Validation of {} document stopped at the time limit of {} ms",
+                profile, TimeUnit.NANOSECONDS.toMillis(maxTimeNanos));
+
+        return new ValidationResponse(false, messages, level, true);
+    }
+
+    private int entryCount(IBaseResource resource) {
+        return resource instanceof Bundle bundle ? bundle.getEntry().size() : -1;
+    }
+
     private ValidationMessage convertMessage(SingleValidationMessage msg) {
         return new ValidationMessage(
                 msg.getSeverity().name(),
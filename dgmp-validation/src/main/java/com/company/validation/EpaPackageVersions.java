@@ -0,0 +1,147 @@
+package com.company.validation;
+
+import com.company.fhir.EpaProfiles;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Routes documents to the validators of the EPA Medication package version they declare.
+ *
+ * The version is taken from a versioned EPA canonical in {@code meta.profile}, e.g.
+ * {@code .../epa-medication-bundle|3.0.5}. Documents without one, or with a version that is
+ * not configured, are validated against the default version, whose validators are created
+ * at startup. Validators of the additional versions are created on first use and held
+ * softly: rarely used versions are dropped after the idle time, when more than the maximum
+ * number are loaded, or when the garbage collector runs short of memory, and are rebuilt
+ * on the next document.
+ */
+public class EpaPackageVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(EpaPackageVersions.class);
+
+    private final String defaultVersion;
+    private final ValidatorPools defaultPools;
+    private final Set<String> additionalVersions;
+    private final LoadingCache<String, ValidatorPools> loaded;
+
+    /**
+     * @param loader Creates the validator pools of an additional version
+     * @param maximumLoaded Additional versions kept loaded at the same time
+     * @param expireAfterAccessMillis Idle time after which an additional version is unloaded, 0 for none
+     */
+    public EpaPackageVersions(String defaultVersion,
+                              ValidatorPools defaultPools,
+                              Collection<String> additionalVersions,
+                              Function<String, ValidatorPools> loader,
+                              long maximumLoaded,
+                              long expireAfterAccessMillis,
+                              MeterRegistry meterRegistry) {
+        this.defaultVersion = defaultVersion;
+        this.defaultPools = defaultPools;
+        this.additionalVersions = new TreeSet<>(additionalVersions);
+        this.additionalVersions.remove(defaultVersion);
+
+        Counter loads = Counter.builder("dgmp.validation.package-versions.loads")
+                .description("Additional package versions loaded on demand")
+                .register(meterRegistry);
+        Counter unloads = Counter.builder("dgmp.validation.package-versions.unloads")
+                .description("Additional package versions unloaded")
+                .register(meterRegistry);
+        Caffeine<String, ValidatorPools> builder = Caffeine.newBuilder()
+                .maximumSize(maximumLoaded)
+                .softValues()
+                .removalListener((String version, ValidatorPools pools, RemovalCause cause) -> {
+                    unloads.increment();
+                    log.info("Unloaded EPA Medication package {} ({})", version, cause);
+                });
+        if (expireAfterAccessMillis > 0) {
+            builder.expireAfterAccess(Duration.ofMillis(expireAfterAccessMillis));
+        }
+        this.loaded = builder.build(version -> {
+            long start = System.currentTimeMillis();
+            ValidatorPools pools = loader.apply(version);
+            loads.increment();
+            log.info("Loaded EPA Medication package {} on demand in {} ms", version, System.currentTimeMillis() - start);
+            return pools;
+        });
+
+        Gauge.builder("dgmp.validation.package-versions.loaded", loaded, LoadingCache::estimatedSize)
+                .description("Additional package versions currently loaded")
+                .register(meterRegistry);
+        log.info("EPA Medication package versions: {} (default), additional {}", defaultVersion, this.additionalVersions);
+    }
+
+    /**
+     * @return Routing of all documents to the given pools
+     */
+    public static EpaPackageVersions single(String version, ValidatorPools pools, MeterRegistry meterRegistry) {
+        return new EpaPackageVersions(version, pools, List.of(), v -> pools, 0, 0, meterRegistry);
+    }
+
+    /**
+     * Loads the validators of the document's package version if necessary
+     *
+     * @return The validator pools for the document
+     * @throws IllegalStateException if the package version cannot be loaded
+     */
+    public ValidatorPools poolsFor(IBaseResource resource) {
+        String version = versionOf(resource);
+        return version.equals(defaultVersion) ? defaultPools : loaded.get(version);
+    }
+
+    /**
+     * @return The configured package version the document is validated against
+     */
+    public String versionOf(IBaseResource resource) {
+        String requested = requestedVersion(resource);
+        return requested != null && additionalVersions.contains(requested) ? requested : defaultVersion;
+    }
+
+    /**
+     * @return Version of the first versioned EPA Medication canonical in meta.profile, or {@code null}
+     */
+    static String requestedVersion(IBaseResource resource) {
+        if (resource == null || resource.getMeta() == null) {
+            return null;
+        }
+        for (IPrimitiveType<String> profile : resource.getMeta().getProfile()) {
+            String url = profile.getValue();
+            int bar = url != null ? url.indexOf('|') : -1;
+            if (bar > 0 && url.startsWith(EpaProfiles.BASE_URL)) {
+                return url.substring(bar + 1);
+            }
+        }
+        return null;
+    }
+
+    public ValidatorPools getDefaultPools() {
+        return defaultPools;
+    }
+
+    public String getDefaultVersion() {
+        return defaultVersion;
+    }
+
+    public Set<String> getAdditionalVersions() {
+        return additionalVersions;
+    }
+
+    public Set<String> getLoadedVersions() {
+        return new TreeSet<>(loaded.asMap().keySet());
+    }
+}
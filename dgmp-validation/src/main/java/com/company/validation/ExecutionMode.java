@@ -0,0 +1,11 @@
+package com.company.validation;
+
+/**
+ * Threads handling REST requests
+ */
+public enum ExecutionMode {
+    /** Tomcat's platform thread pool; validations run on the request thread */
+    PLATFORM,
+    /** One virtual thread per request; validations run on {@link ValidationWorkers} */
+    VIRTUAL
+}
@@ -1,21 +1,31 @@
 package com.company.validation;
 
+import com.company.fhir.EpaProfiles;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
 import ca.uhn.fhir.context.support.IValidationSupport;
-import ca.uhn.fhir.validation.FhirValidator;
-import org.hl7.fhir.common.hapi.validation.support.CachingValidationSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hl7.fhir.common.hapi.validation.support.CommonCodeSystemsTerminologyService;
 import org.hl7.fhir.common.hapi.validation.support.InMemoryTerminologyServerValidationSupport;
 import org.hl7.fhir.common.hapi.validation.support.NpmPackageValidationSupport;
 import org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain;
-import org.hl7.fhir.common.hapi.validation.validator.FhirInstanceValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration for FHIR Validator with EPA Medication Profile support
@@ -25,9 +35,56 @@ public class FhirValidatorConfig {
 
     private static final Logger log = LoggerFactory.getLogger(FhirValidatorConfig.class);
 
+    static final String EPA_PACKAGE_PATH = epaPackagePath(EpaProfiles.PACKAGE_VERSION);
+
+    static String epaPackagePath(String packageVersion) {
+        return "classpath:package/" + EpaProfiles.PACKAGE_ID + "-" + packageVersion + ".tgz";
+    }
+
+    /**
+     * Builds the validation support outside Spring, without a package store or persistent
+     * terminology cache and with the default support cache sizes, e.g. for benchmarks
+     */
+    public static IValidationSupport createStandaloneValidationSupport(FhirContext fhirContext) {
+        return createValidationSupport(fhirContext, EpaProfiles.PACKAGE_VERSION, "", true, "",
+                PersistentTerminologyCache.disabled(), new StandardEnvironment(), new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param packageStorePath Directory of unpacked FHIR packages, or blank to use only
+     *                         the precompiled artifact and the classpath tgz
+     * @param valueSetIndex Whether to answer codes of ValueSets bound by the EPA profiles from a precomputed index
+     * @param pznIndexPath PZN master data index built by {@link PznIndexBuilder}, or blank to not check PZNs
+     * @throws IllegalStateException if the EPA Medication package is not available from any source
+     */
     @Bean
-    public IValidationSupport validationSupport(FhirContext fhirContext) throws IOException {
-        log.info("Initializing FHIR ValidationSupport with EPA Medication profiles");
+    public ObservableCachingValidationSupport validationSupport(
+            FhirContext fhirContext,
+            @Value("${hapi.fhir.validation.package-store.path:}") String packageStorePath,
+            @Value("${hapi.fhir.validation.valueset-index.enabled:true}") boolean valueSetIndex,
+            @Value("${hapi.fhir.validation.pzn-index.path:}") String pznIndexPath,
+            PersistentTerminologyCache persistentTerminologyCache,
+            Environment environment,
+            MeterRegistry meterRegistry) throws IOException {
+        return createValidationSupport(fhirContext, EpaProfiles.PACKAGE_VERSION, packageStorePath, valueSetIndex,
+                pznIndexPath, persistentTerminologyCache, environment, meterRegistry);
+    }
+
+    /**
+     * Builds the validation support chain for one version of the EPA Medication package
+     *
+     * @throws IllegalStateException if the package version is not available from any source
+     */
+    static ObservableCachingValidationSupport createValidationSupport(
+            FhirContext fhirContext,
+            String packageVersion,
+            String packageStorePath,
+            boolean valueSetIndex,
+            String pznIndexPath,
+            PersistentTerminologyCache persistentTerminologyCache,
+            Environment environment,
+            MeterRegistry meterRegistry) {
+        log.info("Initializing FHIR ValidationSupport with EPA Medication profiles {}", packageVersion);
 
         // Default validation support (provides base FHIR validation)
         DefaultProfileValidationSupport defaultSupport = new DefaultProfileValidationSupport(fhirContext);
@@ -40,53 +97,282 @@ public class FhirValidatorConfig {
         CommonCodeSystemsTerminologyService commonCodeSystemsSupport =
                 new CommonCodeSystemsTerminologyService(fhirContext);
 
-        // NPM Package support for EPA Medication profiles
-        NpmPackageValidationSupport npmPackageSupport = new NpmPackageValidationSupport(fhirContext);
-
-        // Load EPA Medication package from public registry
-        // Note: This will download the package from packages.simplifier.net if not cached
-        try {
-            log.info("Loading EPA Medication package: de.gematik.epa-medication version 3.1.0");
-            npmPackageSupport.loadPackageFromClasspath("classpath:package/de.gematik.epa-medication-3.1.0.tgz");
-        } catch (Exception e) {
-            log.warn("Could not load EPA Medication package from classpath, will try online: {}", e.getMessage());
-            // If loading from classpath fails, the validator will try to fetch from packages.simplifier.net
-            // This is automatic for known packages
+        // EPA Medication profiles with snapshots precompiled at build time
+        IValidationSupport epaPackageSupport = PrecompiledPackageValidationSupport.loadFromClasspath(
+                fhirContext, EpaProfiles.PACKAGE_ID, packageVersion);
+
+        // Offline package store with the EPA package and its dependencies,
+        // without other versions of the EPA package
+        LocalPackageStoreValidationSupport packageStoreSupport = null;
+        if (!packageStorePath.isBlank()) {
+            packageStoreSupport = LocalPackageStoreValidationSupport.open(fhirContext, Path.of(packageStorePath))
+                    .withPackageVersion(EpaProfiles.PACKAGE_ID, packageVersion);
+            if (epaPackageSupport == null) {
+                packageStoreSupport.requirePackage(EpaProfiles.PACKAGE_ID, packageVersion);
+            }
+        }
+
+        if (epaPackageSupport == null && packageStoreSupport == null) {
+            // NPM Package support for EPA Medication profiles
+            NpmPackageValidationSupport npmPackageSupport = new NpmPackageValidationSupport(fhirContext);
+
+            // Never fall back to the online registry: validating without the profiles
+            // would silently degrade to base FHIR validation
+            String packagePath = epaPackagePath(packageVersion);
+            try {
+                log.info("Loading EPA Medication package: {} version {}", EpaProfiles.PACKAGE_ID, packageVersion);
+                npmPackageSupport.loadPackageFromClasspath(packagePath);
+            } catch (Exception e) {
+                throw new IllegalStateException("EPA Medication package " + EpaProfiles.PACKAGE_ID + "#"
+                        + packageVersion + " not available: no precompiled artifact, no package store"
+                        + " configured (hapi.fhir.validation.package-store.path) and " + packagePath
+                        + " could not be loaded", e);
+            }
+            epaPackageSupport = npmPackageSupport;
+        }
+
+        List<IValidationSupport> supports = new ArrayList<>();
+        if (epaPackageSupport != null) {
+            supports.add(epaPackageSupport);
+        }
+        if (packageStoreSupport != null) {
+            supports.add(packageStoreSupport);
+        }
+        supports.add(defaultSupport);
+        // Bound EPA ValueSets, filled once the chain is complete
+        ValueSetMembershipIndex membershipIndex = null;
+        if (valueSetIndex) {
+            membershipIndex = new ValueSetMembershipIndex(fhirContext);
+            supports.add(membershipIndex);
         }
+        // PZN master data, memory-mapped
+        if (!pznIndexPath.isBlank()) {
+            supports.add(PznValidationSupport.open(fhirContext, Path.of(pznIndexPath)));
+        }
+        supports.add(inMemoryTerminologySupport);
+        supports.add(commonCodeSystemsSupport);
 
         // Chain all validation supports
-        ValidationSupportChain validationSupportChain = new ValidationSupportChain(
-                npmPackageSupport,
-                defaultSupport,
-                inMemoryTerminologySupport,
-                commonCodeSystemsSupport
-        );
+        ValidationSupportChain validationSupportChain =
+                new ValidationSupportChain(supports.toArray(new IValidationSupport[0]));
+        if (membershipIndex != null) {
+            membershipIndex.load(validationSupportChain, EpaProfiles.BASE_URL);
+        }
+
+        // Terminology results of earlier runs, beneath the in-memory cache
+        IValidationSupport cachedSupport = validationSupportChain;
+        if (persistentTerminologyCache.isEnabled()) {
+            cachedSupport = new PersistentTerminologyValidationSupport(
+                    fhirContext, validationSupportChain, persistentTerminologyCache);
+        }
 
         // Wrap in caching validation support for performance
-        CachingValidationSupport cachingValidationSupport = new CachingValidationSupport(validationSupportChain);
+        ObservableCachingValidationSupport cachingValidationSupport = new ObservableCachingValidationSupport(
+                fhirContext, cachedSupport, supportCacheSpecs(environment), meterRegistry);
 
         log.info("ValidationSupport initialized successfully");
         return cachingValidationSupport;
     }
 
+    /**
+     * Reads hapi.fhir.validation.support-cache.&lt;category&gt;.maximum-size and .expire-after-write-ms
+     */
+    private static Map<ObservableCachingValidationSupport.Category, ObservableCachingValidationSupport.CacheSpec> supportCacheSpecs(
+            Environment environment) {
+        Map<ObservableCachingValidationSupport.Category, ObservableCachingValidationSupport.CacheSpec> specs =
+                new EnumMap<>(ObservableCachingValidationSupport.Category.class);
+        for (ObservableCachingValidationSupport.Category category : ObservableCachingValidationSupport.Category.values()) {
+            String prefix = "hapi.fhir.validation.support-cache." + category.getName();
+            specs.put(category, new ObservableCachingValidationSupport.CacheSpec(
+                    environment.getProperty(prefix + ".maximum-size", Long.class,
+                            ObservableCachingValidationSupport.CacheSpec.DEFAULT_MAXIMUM_SIZE),
+                    environment.getProperty(prefix + ".expire-after-write-ms", Long.class,
+                            ObservableCachingValidationSupport.CacheSpec.DEFAULT_EXPIRE_AFTER_WRITE_MILLIS)));
+        }
+        return specs;
+    }
+
+    /**
+     * @param path Directory of the cache files, or blank to keep terminology results in memory only
+     */
+    @Bean(destroyMethod = "close")
+    public PersistentTerminologyCache persistentTerminologyCache(
+            FhirContext fhirContext,
+            @Value("${hapi.fhir.validation.terminology-cache.path:}") String path,
+            @Value("${hapi.fhir.validation.terminology-cache.max-bytes:268435456}") long maxBytes) {
+        if (path.isBlank()) {
+            return PersistentTerminologyCache.disabled();
+        }
+        return PersistentTerminologyCache.open(
+                Path.of(path), EpaProfiles.PACKAGE_ID, EpaProfiles.PACKAGE_VERSION, fhirContext, maxBytes);
+    }
+
+    @Bean
+    public ValidatorSettings validatorSettings() {
+        return ValidatorSettings.defaults();
+    }
+
+    @Bean
+    public ValidationResultCache validationResultCache(
+            ValidatorSettings validatorSettings,
+            MeterRegistry meterRegistry,
+            Environment environment,
+            @Value("${hapi.fhir.validation.profile-routes.profiles:}") String[] routedProfiles,
+            @Value("${hapi.fhir.validation.package-versions.additional:}") String additionalVersions,
+            @Value("${hapi.fhir.validation.result-cache.enabled:true}") boolean enabled,
+            @Value("${hapi.fhir.validation.result-cache.maximum-size:10000}") long maximumSize,
+            @Value("${hapi.fhir.validation.result-cache.expire-after-write-ms:3600000}") long expireAfterWriteMillis) {
+        // The package version a document is validated against follows from its content and the configured versions
+        String contextKey = EpaProfiles.PACKAGE_ID + "#" + EpaProfiles.PACKAGE_VERSION
+                + (additionalVersions.isBlank() ? "" : "+" + additionalVersions.replace(" ", ""))
+                + "|" + validatorSettings.getKey();
+        // Routed profiles may be validated with other settings
+        for (Map.Entry<String, ValidatorSettings> route
+                : profileRouteSettings(environment, routedProfiles, validatorSettings).entrySet()) {
+            if (!route.getValue().getKey().equals(validatorSettings.getKey())) {
+                contextKey += "|" + route.getKey() + ":" + route.getValue().getKey();
+            }
+        }
+        return new ValidationResultCache(enabled, maximumSize, expireAfterWriteMillis, contextKey, meterRegistry);
+    }
+
     @Bean
-    public FhirValidator fhirValidator(FhirContext fhirContext, IValidationSupport validationSupport) {
-        log.info("Creating FhirValidator with EPA Medication profile support");
+    public FhirValidatorFactory fhirValidatorFactory(
+            FhirContext fhirContext,
+            IValidationSupport validationSupport,
+            ValidatorSettings validatorSettings) {
+        return new FhirValidatorFactory(fhirContext, validationSupport, validatorSettings);
+    }
 
-        FhirValidator validator = fhirContext.newValidator();
+    @Bean(destroyMethod = "close")
+    public ValidationWorkers validationWorkers(
+            MeterRegistry meterRegistry,
+            @Value("${hapi.fhir.validation.execution.mode:PLATFORM}") ExecutionMode executionMode,
+            @Value("${hapi.fhir.validation.execution.worker-threads:0}") int workerThreads) {
+        log.info("Execution mode: {}", executionMode);
+        return executionMode == ExecutionMode.VIRTUAL
+                ? new ValidationWorkers(workerThreads, meterRegistry)
+                : ValidationWorkers.inline();
+    }
 
-        // Create FhirInstanceValidator with custom validation support
-        FhirInstanceValidator instanceValidator = new FhirInstanceValidator(validationSupport);
+    @Bean
+    public ValidatorPool validatorPool(
+            FhirValidatorFactory fhirValidatorFactory,
+            ValidationWorkers validationWorkers,
+            MeterRegistry meterRegistry,
+            @Value("${hapi.fhir.validation.pool.size:0}") int poolSize,
+            @Value("${hapi.fhir.validation.pool.acquire-timeout-ms:30000}") long acquireTimeoutMillis) {
+        int size = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        log.info("Creating validator pool with EPA Medication profile support");
 
-        // Configure validator behavior
-        instanceValidator.setNoTerminologyChecks(false);
-        instanceValidator.setErrorForUnknownProfiles(false);
-        instanceValidator.setAnyExtensionsAllowed(true);
-        instanceValidator.setNoExtensibleWarnings(true);
+        ValidatorPool pool = new ValidatorPool(
+                "default", size, acquireTimeoutMillis, fhirValidatorFactory::create, validationWorkers, meterRegistry);
 
-        validator.registerValidatorModule(instanceValidator);
+        log.info("Validator pool created successfully");
+        return pool;
+    }
 
-        log.info("FhirValidator created successfully");
-        return validator;
+    @Bean
+    public ValidatorPools validatorPools(
+            ValidatorPool validatorPool,
+            FhirValidatorFactory fhirValidatorFactory,
+            MeterRegistry meterRegistry,
+            @Value("${hapi.fhir.validation.pool.acquire-timeout-ms:30000}") long acquireTimeoutMillis,
+            @Value("${hapi.fhir.validation.default-level:FULL_TERMINOLOGY}") ValidationLevel defaultLevel) {
+        log.info("Default validation level: {}", defaultLevel);
+        return new ValidatorPools(validatorPool, fhirValidatorFactory, meterRegistry, acquireTimeoutMillis, defaultLevel);
+    }
+
+    /**
+     * Profiles listed in hapi.fhir.validation.profile-routes.profiles get validator pools of their own,
+     * with the settings of hapi.fhir.validation.profile-routes.settings.&lt;profile&gt;.*
+     */
+    @Bean
+    public ProfileRouter profileRouter(
+            ValidatorPool validatorPool,
+            ValidatorPools validatorPools,
+            FhirValidatorFactory fhirValidatorFactory,
+            ValidatorSettings validatorSettings,
+            ValidationWorkers validationWorkers,
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${hapi.fhir.validation.profile-routes.profiles:}") String[] profiles,
+            @Value("${hapi.fhir.validation.profile-routes.pool-size:0}") int poolSize,
+            @Value("${hapi.fhir.validation.pool.acquire-timeout-ms:30000}") long acquireTimeoutMillis) {
+        int size = poolSize > 0 ? poolSize : Math.max(1, validatorPool.getSize() / 2);
+        List<ProfileRouter.Route> routes = new ArrayList<>();
+        for (Map.Entry<String, ValidatorSettings> route : profileRouteSettings(environment, profiles, validatorSettings).entrySet()) {
+            FhirValidatorFactory factory = fhirValidatorFactory.withSettings(route.getValue());
+            ValidatorPool pool = new ValidatorPool(
+                    "route-" + route.getKey(), size, acquireTimeoutMillis, factory::create, validationWorkers, meterRegistry);
+            routes.add(new ProfileRouter.Route(route.getKey(), new ValidatorPools(
+                    pool, factory, meterRegistry, acquireTimeoutMillis, validatorPools.getDefaultLevel()), route.getValue()));
+        }
+        return new ProfileRouter(validatorPools, routes, meterRegistry);
+    }
+
+    /**
+     * Reads the settings of each routed profile, defaulting to the shared validator settings
+     *
+     * @throws IllegalStateException if a profile is not part of the EPA Medication package
+     */
+    private static Map<String, ValidatorSettings> profileRouteSettings(Environment environment,
+                                                                      String[] profiles,
+                                                                      ValidatorSettings defaults) {
+        Map<String, ValidatorSettings> settings = new LinkedHashMap<>();
+        for (String profile : profiles) {
+            String name = profile.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!EpaProfiles.ALL.contains(EpaProfiles.BASE_URL + name)) {
+                throw new IllegalStateException("Profile route '" + name + "' is not an EPA Medication profile");
+            }
+            String prefix = "hapi.fhir.validation.profile-routes.settings." + name;
+            settings.put(name, new ValidatorSettings(
+                    defaults.isNoTerminologyChecks(),
+                    environment.getProperty(prefix + ".error-for-unknown-profiles", Boolean.class,
+                            defaults.isErrorForUnknownProfiles()),
+                    environment.getProperty(prefix + ".any-extensions-allowed", Boolean.class,
+                            defaults.isAnyExtensionsAllowed()),
+                    environment.getProperty(prefix + ".no-extensible-warnings", Boolean.class,
+                            defaults.isNoExtensibleWarnings())));
+        }
+        return settings;
+    }
+
+    /**
+     * Additional EPA Medication package versions get their own support chain and validator pools
+     * on first use. Their meters go to a registry of their own, so the application registry holds
+     * no references to unloaded versions; their Bundle entries are validated sequentially.
+     *
+     * @param additionalVersions Package versions besides {@link EpaProfiles#PACKAGE_VERSION}
+     */
+    @Bean
+    public EpaPackageVersions epaPackageVersions(
+            FhirContext fhirContext,
+            ValidatorPools validatorPools,
+            ValidatorSettings validatorSettings,
+            ValidationWorkers validationWorkers,
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${hapi.fhir.validation.package-versions.additional:}") String[] additionalVersions,
+            @Value("${hapi.fhir.validation.package-versions.pool-size:2}") int poolSize,
+            @Value("${hapi.fhir.validation.package-versions.maximum-loaded:2}") long maximumLoaded,
+            @Value("${hapi.fhir.validation.package-versions.expire-after-access-ms:3600000}") long expireAfterAccessMillis,
+            @Value("${hapi.fhir.validation.package-store.path:}") String packageStorePath,
+            @Value("${hapi.fhir.validation.valueset-index.enabled:true}") boolean valueSetIndex,
+            @Value("${hapi.fhir.validation.pzn-index.path:}") String pznIndexPath,
+            @Value("${hapi.fhir.validation.pool.acquire-timeout-ms:30000}") long acquireTimeoutMillis) {
+        List<String> versions = Arrays.stream(additionalVersions).map(String::trim).filter(v -> !v.isEmpty()).toList();
+        return new EpaPackageVersions(EpaProfiles.PACKAGE_VERSION, validatorPools, versions, version -> {
+            SimpleMeterRegistry versionRegistry = new SimpleMeterRegistry();
+            IValidationSupport support = createValidationSupport(fhirContext, version, packageStorePath, valueSetIndex,
+                    pznIndexPath, PersistentTerminologyCache.disabled(), environment, versionRegistry);
+            FhirValidatorFactory factory = new FhirValidatorFactory(fhirContext, support, validatorSettings);
+            ValidatorPool pool = new ValidatorPool(
+                    version, Math.max(1, poolSize), acquireTimeoutMillis, factory::create, validationWorkers, versionRegistry);
+            return new ValidatorPools(pool, factory, versionRegistry, acquireTimeoutMillis, validatorPools.getDefaultLevel());
+        }, maximumLoaded, expireAfterAccessMillis, meterRegistry);
     }
 }
@@ -0,0 +1,77 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.validation.FhirValidator;
+import org.hl7.fhir.common.hapi.validation.validator.FhirInstanceValidator;
+
+/**
+ * Creates validators for a {@link ValidatorPool}.
+ *
+ * Validators for the lower {@link ValidationLevel}s share the validation support
+ * and its caches; they only differ in settings and the visible profiles.
+ *
+ * Every validator gets its own {@link ValidationDeadlineSupport} in front of the shared
+ * support, so a validation run can be stopped once its time budget is used up.
+ */
+public class FhirValidatorFactory {
+
+    private final FhirContext fhirContext;
+    private final IValidationSupport validationSupport;
+    private final IValidationSupport coreProfilesSupport;
+    private final ValidatorSettings settings;
+
+    public FhirValidatorFactory(FhirContext fhirContext,
+                                IValidationSupport validationSupport,
+                                ValidatorSettings settings) {
+        this.fhirContext = fhirContext;
+        this.validationSupport = validationSupport;
+        this.coreProfilesSupport = new CoreProfilesOnlyValidationSupport(fhirContext, validationSupport);
+        this.settings = settings;
+    }
+
+    private FhirValidatorFactory(FhirValidatorFactory parent, ValidatorSettings settings) {
+        this.fhirContext = parent.fhirContext;
+        this.validationSupport = parent.validationSupport;
+        this.coreProfilesSupport = parent.coreProfilesSupport;
+        this.settings = settings;
+    }
+
+    /**
+     * @return A factory for validators with other settings, sharing the validation support of this factory
+     */
+    public FhirValidatorFactory withSettings(ValidatorSettings settings) {
+        return new FhirValidatorFactory(this, settings);
+    }
+
+    public PooledValidator create() {
+        return create(ValidationLevel.FULL_TERMINOLOGY);
+    }
+
+    public PooledValidator create(ValidationLevel level) {
+        ValidationDeadlineSupport deadline = new ValidationDeadlineSupport(fhirContext,
+                level == ValidationLevel.STRUCTURE ? coreProfilesSupport : validationSupport);
+        return new PooledValidator(createFhirValidator(level, deadline), deadline);
+    }
+
+    public ValidatorSettings getSettings() {
+        return settings;
+    }
+
+    private FhirValidator createFhirValidator(ValidationLevel level, IValidationSupport support) {
+        FhirValidator validator = fhirContext.newValidator();
+
+        // Create FhirInstanceValidator with custom validation support
+        FhirInstanceValidator instanceValidator = new FhirInstanceValidator(support);
+
+        // Configure validator behavior
+        if (level == ValidationLevel.FULL_TERMINOLOGY) {
+            settings.applyTo(instanceValidator);
+        } else {
+            settings.withNoTerminologyChecks(true).applyTo(instanceValidator);
+        }
+
+        validator.registerValidatorModule(instanceValidator);
+        return validator;
+    }
+}
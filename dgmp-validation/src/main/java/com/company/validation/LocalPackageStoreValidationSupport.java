@@ -0,0 +1,372 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Validation support backed by a local directory of unpacked FHIR packages,
+ * laid out like the FHIR package cache ({@code <root>/<id>#<version>/package/*.json}).
+ *
+ * At startup every StructureDefinition, ValueSet and CodeSystem is indexed by canonical
+ * URL and version, using the package's {@code .index.json} when present. Resource files
+ * are memory-mapped and only parsed on first access. Nothing is ever fetched online.
+ *
+ * When several packages define the same canonical URL, a canonical without a version resolves
+ * to the version required by the selected package ({@link #withPackageVersion}) and its
+ * dependencies, otherwise to the highest package version, independent of directory order.
+ */
+public class LocalPackageStoreValidationSupport implements IValidationSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalPackageStoreValidationSupport.class);
+
+    private static final Set<String> INDEXED_TYPES = Set.of("StructureDefinition", "ValueSet", "CodeSystem");
+
+    private final FhirContext fhirContext;
+    private final Path root;
+    private final Set<String> packages;
+    private final Map<String, Map<String, String>> dependencies;
+    private final Map<String, List<IndexedResource>> byUrl;
+    private final List<IndexedResource> resources;
+
+    /**
+     * @param dependencies Dependencies (package id to version) by package key
+     * @param preferred Package keys whose resources win over other versions of the same canonical
+     */
+    private LocalPackageStoreValidationSupport(FhirContext fhirContext,
+                                               Path root,
+                                               Set<String> packages,
+                                               Map<String, Map<String, String>> dependencies,
+                                               List<IndexedResource> resources,
+                                               Set<String> preferred) {
+        this.fhirContext = fhirContext;
+        this.root = root;
+        this.packages = packages;
+        this.dependencies = dependencies;
+        this.resources = resources;
+        this.byUrl = new HashMap<>();
+        for (IndexedResource resource : resources) {
+            byUrl.computeIfAbsent(resource.url, url -> new ArrayList<>()).add(resource);
+        }
+        // Preferred packages first, then the highest package version
+        Comparator<IndexedResource> order = Comparator
+                .comparing((IndexedResource resource) -> !preferred.contains(resource.packageKey))
+                .thenComparing((IndexedResource resource) -> packageVersion(resource.packageKey),
+                        (left, right) -> compareVersions(right, left))
+                .thenComparing(resource -> resource.packageKey);
+        byUrl.values().forEach(candidates -> candidates.sort(order));
+    }
+
+    /**
+     * Indexes all packages below the given directory
+     *
+     * @throws IllegalStateException if the directory does not exist or cannot be read
+     */
+    public static LocalPackageStoreValidationSupport open(FhirContext fhirContext, Path root) {
+        if (!Files.isDirectory(root)) {
+            throw new IllegalStateException("FHIR package store " + root + " does not exist");
+        }
+
+        long start = System.currentTimeMillis();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Set<String> packages = new TreeSet<>();
+        Map<String, Map<String, String>> dependencies = new HashMap<>();
+        List<IndexedResource> resources = new ArrayList<>();
+
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path packageDirectory : directories.sorted().map(dir -> dir.resolve("package")).filter(Files::isDirectory).toList()) {
+                Path manifest = packageDirectory.resolve("package.json");
+                if (!Files.isRegularFile(manifest)) {
+                    continue;
+                }
+                JsonNode packageJson = objectMapper.readTree(manifest.toFile());
+                String packageKey = packageJson.path("name").asText() + "#" + packageJson.path("version").asText();
+                packages.add(packageKey);
+                Map<String, String> packageDependencies = new HashMap<>();
+                packageJson.path("dependencies").fields()
+                        .forEachRemaining(dependency -> packageDependencies.put(dependency.getKey(), dependency.getValue().asText()));
+                dependencies.put(packageKey, packageDependencies);
+                resources.addAll(indexPackage(objectMapper, packageDirectory, packageKey));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not index FHIR package store " + root, e);
+        }
+
+        log.info("Indexed {} conformance resources from {} packages in {} in {} ms",
+                resources.size(), packages.size(), root, System.currentTimeMillis() - start);
+        return new LocalPackageStoreValidationSupport(fhirContext, root, packages, dependencies, resources, Set.of());
+    }
+
+    /**
+     * @throws IllegalStateException if the given package is not present in the store
+     */
+    public void requirePackage(String packageId, String packageVersion) {
+        String packageKey = packageId + "#" + packageVersion;
+        if (!packages.contains(packageKey)) {
+            throw new IllegalStateException("Required FHIR package " + packageKey
+                    + " not found in package store " + root + " (available: " + packages + ")");
+        }
+    }
+
+    public boolean hasPackage(String packageId, String packageVersion) {
+        return packages.contains(packageId + "#" + packageVersion);
+    }
+
+    /**
+     * @return View of the store without the other versions of the given package, so canonical
+     *         URLs of that package without a version resolve to the given version. Canonicals of
+     *         its dependencies resolve to the versions it requires, as far as they are present.
+     */
+    public LocalPackageStoreValidationSupport withPackageVersion(String packageId, String packageVersion) {
+        String kept = packageId + "#" + packageVersion;
+        String prefix = packageId + "#";
+        Set<String> keptPackages = new TreeSet<>();
+        for (String packageKey : packages) {
+            if (packageKey.equals(kept) || !packageKey.startsWith(prefix)) {
+                keptPackages.add(packageKey);
+            }
+        }
+        List<IndexedResource> keptResources = resources.stream()
+                .filter(resource -> keptPackages.contains(resource.packageKey))
+                .toList();
+        return new LocalPackageStoreValidationSupport(
+                fhirContext, root, keptPackages, dependencies, keptResources, requiredPackages(kept));
+    }
+
+    /**
+     * @return The package and the present packages it requires, directly or indirectly
+     */
+    private Set<String> requiredPackages(String packageKey) {
+        Set<String> required = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(packageKey);
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            if (!packages.contains(current) || !required.add(current)) {
+                continue;
+            }
+            dependencies.getOrDefault(current, Map.of())
+                    .forEach((id, version) -> pending.add(id + "#" + version));
+        }
+        return required;
+    }
+
+    private static String packageVersion(String packageKey) {
+        return packageKey.substring(packageKey.indexOf('#') + 1);
+    }
+
+    /**
+     * Compares dotted versions numerically where possible, e.g. 1.10.0 &gt; 1.9.2 &gt; 1.9.2-ballot
+     */
+    static int compareVersions(String a, String b) {
+        String[] left = a.split("[.-]");
+        String[] right = b.split("[.-]");
+        for (int i = 0; i < Math.min(left.length, right.length); i++) {
+            int result;
+            if (left[i].matches("\\d+") && right[i].matches("\\d+")) {
+                result = Long.compare(Long.parseLong(left[i]), Long.parseLong(right[i]));
+            } else {
+                result = left[i].compareTo(right[i]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        if (left.length == right.length) {
+            return 0;
+        }
+        // A pre-release suffix ranks below the release, further numeric parts above it
+        String[] longer = left.length > right.length ? left : right;
+        int sign = longer[Math.min(left.length, right.length)].matches("\\d+") ? 1 : -1;
+        return left.length > right.length ? sign : -sign;
+    }
+
+    @Override
+    public FhirContext getFhirContext() {
+        return fhirContext;
+    }
+
+    @Override
+    public IBaseResource fetchStructureDefinition(String url) {
+        return fetch("StructureDefinition", url);
+    }
+
+    @Override
+    public IBaseResource fetchValueSet(String url) {
+        return fetch("ValueSet", url);
+    }
+
+    @Override
+    public IBaseResource fetchCodeSystem(String url) {
+        return fetch("CodeSystem", url);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IBaseResource> T fetchResource(Class<T> resourceClass, String url) {
+        String resourceType = resourceClass == null ? null : fhirContext.getResourceType(resourceClass);
+        IBaseResource resource = fetch(resourceType, url);
+        return resourceClass == null || resourceClass.isInstance(resource) ? (T) resource : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IBaseResource> List<T> fetchAllStructureDefinitions() {
+        return (List<T>) resources.stream()
+                .filter(resource -> "StructureDefinition".equals(resource.resourceType))
+                .map(this::parse)
+                .toList();
+    }
+
+    @Override
+    public List<IBaseResource> fetchAllConformanceResources() {
+        return resources.stream().map(this::parse).toList();
+    }
+
+    private IBaseResource fetch(String resourceType, String canonical) {
+        if (canonical == null) {
+            return null;
+        }
+        String url = canonical;
+        String version = null;
+        int bar = canonical.indexOf('|');
+        if (bar >= 0) {
+            url = canonical.substring(0, bar);
+            version = canonical.substring(bar + 1);
+        }
+
+        List<IndexedResource> candidates = byUrl.get(url);
+        if (candidates == null) {
+            return null;
+        }
+        for (IndexedResource candidate : candidates) {
+            if ((resourceType == null || resourceType.equals(candidate.resourceType))
+                    && (version == null || version.equals(candidate.version))) {
+                return parse(candidate);
+            }
+        }
+        return null;
+    }
+
+    private IBaseResource parse(IndexedResource resource) {
+        IBaseResource parsed = resource.parsed;
+        if (parsed == null) {
+            synchronized (resource) {
+                parsed = resource.parsed;
+                if (parsed == null) {
+                    String json = StandardCharsets.UTF_8.decode(resource.content.duplicate()).toString();
+                    parsed = fhirContext.newJsonParser().parseResource(json);
+                    resource.parsed = parsed;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private static List<IndexedResource> indexPackage(ObjectMapper objectMapper, Path packageDirectory, String packageKey)
+            throws IOException {
+        List<IndexedResource> indexed = new ArrayList<>();
+        Path indexFile = packageDirectory.resolve(".index.json");
+
+        if (Files.isRegularFile(indexFile)) {
+            for (JsonNode file : objectMapper.readTree(indexFile.toFile()).path("files")) {
+                String resourceType = file.path("resourceType").asText();
+                String url = file.path("url").asText(null);
+                if (INDEXED_TYPES.contains(resourceType) && url != null) {
+                    Path path = packageDirectory.resolve(file.path("filename").asText());
+                    indexed.add(new IndexedResource(
+                            packageKey, resourceType, url, file.path("version").asText(null), map(path)));
+                }
+            }
+            return indexed;
+        }
+
+        // No index shipped with the package: read the top-level fields of each file
+        try (Stream<Path> files = Files.list(packageDirectory)) {
+            for (Path path : files.filter(p -> p.toString().endsWith(".json")).toList()) {
+                String fileName = path.getFileName().toString();
+                if (fileName.equals("package.json") || fileName.startsWith(".")) {
+                    continue;
+                }
+                Map<String, String> fields = readTopLevelFields(objectMapper, path);
+                String resourceType = fields.get("resourceType");
+                String url = fields.get("url");
+                if (INDEXED_TYPES.contains(resourceType) && url != null) {
+                    indexed.add(new IndexedResource(packageKey, resourceType, url, fields.get("version"), map(path)));
+                }
+            }
+        }
+        return indexed;
+    }
+
+    private static Map<String, String> readTopLevelFields(ObjectMapper objectMapper, Path path) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(path.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return fields;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING
+                        && (name.equals("resourceType") || name.equals("url") || name.equals("version"))) {
+                    fields.put(name, parser.getText());
+                    if (fields.size() == 3) {
+                        break;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static class IndexedResource {
+        private final String packageKey;
+        private final String resourceType;
+        private final String url;
+        private final String version;
+        private final MappedByteBuffer content;
+        private volatile IBaseResource parsed;
+
+        IndexedResource(String packageKey, String resourceType, String url, String version, MappedByteBuffer content) {
+            this.packageKey = packageKey;
+            this.resourceType = resourceType;
+            this.url = url;
+            this.version = version;
+            this.content = content;
+        }
+    }
+}
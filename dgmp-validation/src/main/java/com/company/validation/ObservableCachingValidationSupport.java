@@ -0,0 +1,279 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hl7.fhir.common.hapi.validation.support.BaseValidationSupportWrapper;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Replacement for HAPI's {@code CachingValidationSupport} with one Caffeine cache per
+ * {@link Category}, each with its own size and expiry.
+ *
+ * Hits, misses, evictions and load times are published as {@code cache.*} metrics tagged
+ * {@code cache=validation-support-<category>}. Results are loaded outside the cache, since
+ * validation supports call back into the chain and may load another entry of the same cache.
+ */
+public class ObservableCachingValidationSupport extends BaseValidationSupportWrapper {
+
+    private static final Logger log = LoggerFactory.getLogger(ObservableCachingValidationSupport.class);
+
+    public enum Category {
+        /** StructureDefinitions, ValueSets, CodeSystems and other conformance resources */
+        RESOURCE,
+        /** Code validations, with or without ValueSet */
+        VALIDATE_CODE,
+        /** Code lookups */
+        LOOKUP_CODE,
+        /** ValueSet expansions */
+        EXPANSION,
+        /** Supported code systems and ValueSets */
+        MISC;
+
+        /**
+         * @return Name used in configuration keys and metric tags, e.g. "validate-code"
+         */
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    /**
+     * Size and expiry of one cache category
+     */
+    public static final class CacheSpec {
+        public static final long DEFAULT_MAXIMUM_SIZE = 5000;
+        public static final long DEFAULT_EXPIRE_AFTER_WRITE_MILLIS = 600_000;
+
+        private final long maximumSize;
+        private final long expireAfterWriteMillis;
+
+        public CacheSpec(long maximumSize, long expireAfterWriteMillis) {
+            this.maximumSize = maximumSize;
+            this.expireAfterWriteMillis = expireAfterWriteMillis;
+        }
+
+        public static CacheSpec defaults() {
+            return new CacheSpec(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE_MILLIS);
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        /**
+         * @return Expiry after write, 0 if entries only leave by size
+         */
+        public long getExpireAfterWriteMillis() {
+            return expireAfterWriteMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "maximumSize=" + maximumSize + ", expireAfterWrite=" + expireAfterWriteMillis + " ms";
+        }
+    }
+
+    private final Map<Category, CategoryCache> caches = new EnumMap<>(Category.class);
+
+    /**
+     * @param specs Size and expiry per category; missing categories use {@link CacheSpec#defaults()}
+     */
+    public ObservableCachingValidationSupport(FhirContext fhirContext,
+                                              IValidationSupport wrapped,
+                                              Map<Category, CacheSpec> specs,
+                                              MeterRegistry meterRegistry) {
+        super(fhirContext, wrapped);
+        for (Category category : Category.values()) {
+            CategoryCache cache = new CategoryCache(specs.getOrDefault(category, CacheSpec.defaults()));
+            CaffeineCacheMetrics.monitor(meterRegistry, cache.cache, "validation-support-" + category.getName());
+            caches.put(category, cache);
+            log.info("Validation support cache {}: {}", category.getName(), cache.spec);
+        }
+    }
+
+    public CacheSpec getSpec(Category category) {
+        return caches.get(category).spec;
+    }
+
+    public long getSize(Category category) {
+        return caches.get(category).cache.estimatedSize();
+    }
+
+    /**
+     * @return Hit, miss, eviction and load statistics since startup
+     */
+    public CacheStats getStats(Category category) {
+        return caches.get(category).cache.stats();
+    }
+
+    @Override
+    public void invalidateCaches() {
+        caches.values().forEach(cache -> cache.cache.invalidateAll());
+        super.invalidateCaches();
+        log.info("Validation support caches flushed");
+    }
+
+    @Override
+    public <T extends IBaseResource> T fetchResource(Class<T> type, String uri) {
+        return load(Category.RESOURCE, "resource|" + (type != null ? type.getSimpleName() : "") + "|" + uri,
+                () -> super.fetchResource(type, uri));
+    }
+
+    @Override
+    public IBaseResource fetchStructureDefinition(String url) {
+        return load(Category.RESOURCE, "structure-definition|" + url, () -> super.fetchStructureDefinition(url));
+    }
+
+    @Override
+    public IBaseResource fetchCodeSystem(String system) {
+        return load(Category.RESOURCE, "code-system|" + system, () -> super.fetchCodeSystem(system));
+    }
+
+    @Override
+    public IBaseResource fetchValueSet(String url) {
+        return load(Category.RESOURCE, "value-set|" + url, () -> super.fetchValueSet(url));
+    }
+
+    @Override
+    public <T extends IBaseResource> List<T> fetchAllStructureDefinitions() {
+        return load(Category.RESOURCE, "all-structure-definitions", () -> super.fetchAllStructureDefinitions());
+    }
+
+    @Override
+    public List<IBaseResource> fetchAllConformanceResources() {
+        return load(Category.RESOURCE, "all-conformance-resources", () -> super.fetchAllConformanceResources());
+    }
+
+    @Override
+    public CodeValidationResult validateCode(ValidationSupportContext context,
+                                             ConceptValidationOptions options,
+                                             String codeSystem,
+                                             String code,
+                                             String display,
+                                             String valueSetUrl) {
+        String key = "code|" + optionsKey(options) + "|" + codeSystem + "|" + code + "|" + display + "|" + valueSetUrl;
+        return load(Category.VALIDATE_CODE, key,
+                () -> super.validateCode(context, options, codeSystem, code, display, valueSetUrl));
+    }
+
+    @Override
+    public CodeValidationResult validateCodeInValueSet(ValidationSupportContext context,
+                                                       ConceptValidationOptions options,
+                                                       String codeSystem,
+                                                       String code,
+                                                       String display,
+                                                       IBaseResource valueSet) {
+        String url = getFhirContext().newTerser().getSinglePrimitiveValueOrNull(valueSet, "url");
+        if (url == null) {
+            return super.validateCodeInValueSet(context, options, codeSystem, code, display, valueSet);
+        }
+        String version = getFhirContext().newTerser().getSinglePrimitiveValueOrNull(valueSet, "version");
+        String key = "code-in-valueset|" + optionsKey(options) + "|" + codeSystem + "|" + code + "|" + display + "|" + url + "|" + version;
+        return load(Category.VALIDATE_CODE, key,
+                () -> super.validateCodeInValueSet(context, options, codeSystem, code, display, valueSet));
+    }
+
+    @Override
+    public LookupCodeResult lookupCode(ValidationSupportContext context,
+                                       String system,
+                                       String code,
+                                       String displayLanguage) {
+        return load(Category.LOOKUP_CODE, system + "|" + code + "|" + displayLanguage,
+                () -> super.lookupCode(context, system, code, displayLanguage));
+    }
+
+    @Override
+    public ValueSetExpansionOutcome expandValueSet(ValidationSupportContext context,
+                                                   ValueSetExpansionOptions options,
+                                                   IBaseResource valueSet) {
+        String url = getFhirContext().newTerser().getSinglePrimitiveValueOrNull(valueSet, "url");
+        if (url == null) {
+            return super.expandValueSet(context, options, valueSet);
+        }
+        String version = getFhirContext().newTerser().getSinglePrimitiveValueOrNull(valueSet, "version");
+        return load(Category.EXPANSION, expansionOptionsKey(options) + "|" + url + "|" + version,
+                () -> super.expandValueSet(context, options, valueSet));
+    }
+
+    @Override
+    public boolean isCodeSystemSupported(ValidationSupportContext context, String system) {
+        return load(Category.MISC, "code-system-supported|" + system,
+                () -> super.isCodeSystemSupported(context, system));
+    }
+
+    @Override
+    public boolean isValueSetSupported(ValidationSupportContext context, String valueSetUrl) {
+        return load(Category.MISC, "value-set-supported|" + valueSetUrl,
+                () -> super.isValueSetSupported(context, valueSetUrl));
+    }
+
+    private static String optionsKey(ConceptValidationOptions options) {
+        return options == null ? "-" : options.isInferSystem() + "," + options.isValidateDisplay();
+    }
+
+    private static String expansionOptionsKey(ValueSetExpansionOptions options) {
+        if (options == null) {
+            return "-";
+        }
+        return options.getFilter() + "," + options.getOffset() + "," + options.getCount() + ","
+                + options.isIncludeHierarchy() + "," + options.isFailOnMissingCodeSystem() + ","
+                + options.getTheDisplayLanguage();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(Category category, String key, Supplier<T> loader) {
+        CategoryCache categoryCache = caches.get(category);
+        Optional<Object> cached = categoryCache.cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached.orElse(null);
+        }
+
+        long start = System.nanoTime();
+        T value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            categoryCache.stats.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        categoryCache.stats.recordLoadSuccess(System.nanoTime() - start);
+        categoryCache.cache.put(key, Optional.ofNullable(value));
+        return value;
+    }
+
+    private static final class CategoryCache {
+        private final CacheSpec spec;
+        private final ConcurrentStatsCounter stats = new ConcurrentStatsCounter();
+        private final Cache<String, Optional<Object>> cache;
+
+        private CategoryCache(CacheSpec spec) {
+            this.spec = spec;
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                    .maximumSize(spec.getMaximumSize())
+                    .recordStats(() -> stats);
+            if (spec.getExpireAfterWriteMillis() > 0) {
+                builder.expireAfterWrite(Duration.ofMillis(spec.getExpireAfterWriteMillis()));
+            }
+            this.cache = builder.build();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.company.validation;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Incremental SHA-256 hash over a JSON payload with insignificant whitespace removed,
+ * so documents that differ only in formatting share a fingerprint.
+ *
+ * A cryptographic hash is used on purpose: a collision would return another
+ * document's validation result.
+ */
+final class PayloadFingerprint {
+
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[8192];
+    private int buffered;
+    private boolean inString;
+    private boolean escaped;
+
+    PayloadFingerprint() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String of(String json) {
+        return of(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String of(byte[] json) {
+        PayloadFingerprint fingerprint = new PayloadFingerprint();
+        fingerprint.update(json, 0, json.length);
+        return fingerprint.toHex();
+    }
+
+    void update(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = data[i];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                continue;
+            } else if (b == '"') {
+                inString = true;
+            }
+
+            buffer[buffered++] = b;
+            if (buffered == buffer.length) {
+                flush();
+            }
+        }
+    }
+
+    String toHex() {
+        flush();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void flush() {
+        digest.update(buffer, 0, buffered);
+        buffered = 0;
+    }
+}
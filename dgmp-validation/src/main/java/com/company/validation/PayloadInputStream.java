@@ -0,0 +1,77 @@
+package com.company.validation;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that enforces a maximum payload size while reading and
+ * optionally fingerprints the bytes as they pass through.
+ */
+final class PayloadInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private final PayloadFingerprint fingerprint;
+    private long bytesRead;
+    private boolean limitExceeded;
+
+    /**
+     * @param fingerprint Fingerprint to update, or {@code null}
+     */
+    PayloadInputStream(InputStream in, long maxBytes, PayloadFingerprint fingerprint) {
+        super(in);
+        this.maxBytes = maxBytes;
+        this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+            if (fingerprint != null) {
+                fingerprint.update(new byte[] {(byte) b}, 0, 1);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+            count(n);
+            if (fingerprint != null) {
+                fingerprint.update(buffer, offset, n);
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes would bypass the size limit and the fingerprint
+        throw new IOException("skip is not supported");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    private void count(int n) throws IOException {
+        bytesRead += n;
+        if (bytesRead > maxBytes) {
+            limitExceeded = true;
+            throw new IOException("Payload exceeds maximum size of " + maxBytes + " bytes");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.company.validation;
+
+/**
+ * Thrown when a payload exceeds the configured maximum size
+ */
+public class PayloadTooLargeException extends RuntimeException {
+
+    private final long maxBytes;
+
+    public PayloadTooLargeException(long maxBytes) {
+        super("Payload exceeds maximum size of " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,227 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only file store for terminology results, kept across restarts.
+ *
+ * There is one file per package version ({@code <id>-<version>.terminology.ndjson}): a header
+ * line followed by one JSON object per entry. At startup the file is read into memory; a file
+ * written for another format or FHIR version is discarded. New entries are appended until the
+ * file reaches its size limit. The entries in memory are exactly those in the file, so the
+ * limit bounds the heap as well: beyond it, or once the file cannot be written, further
+ * entries are not cached at all.
+ */
+public class PersistentTerminologyCache implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistentTerminologyCache.class);
+
+    static final String HEADER_PREFIX = "# dgmp-terminology-cache";
+    static final int FORMAT_VERSION = 1;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, JsonNode> entries = new ConcurrentHashMap<>();
+    private final Path file;
+    private final long maxBytes;
+    // null once the cache is full, not writable or disabled; guarded by this
+    private BufferedWriter writer;
+    private long bytes;
+
+    private PersistentTerminologyCache(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return A cache that keeps nothing, for a disabled persistent cache
+     */
+    public static PersistentTerminologyCache disabled() {
+        return new PersistentTerminologyCache(null, 0);
+    }
+
+    /**
+     * Opens the cache file of a package version, creating the directory and file if needed
+     *
+     * @param maxBytes Size limit of the file
+     * @throws IllegalStateException if the file cannot be created or written
+     */
+    public static PersistentTerminologyCache open(Path directory,
+                                                  String packageId,
+                                                  String packageVersion,
+                                                  FhirContext fhirContext,
+                                                  long maxBytes) {
+        Path file = directory.resolve(packageId + "-" + packageVersion + ".terminology.ndjson");
+        PersistentTerminologyCache cache = new PersistentTerminologyCache(file, maxBytes);
+        try {
+            Files.createDirectories(directory);
+            cache.load(header(packageId, packageVersion, fhirContext));
+        } catch (IOException e) {
+            throw new IllegalStateException("Terminology cache " + file + " cannot be opened", e);
+        }
+        return cache;
+    }
+
+    static String header(String packageId, String packageVersion, FhirContext fhirContext) {
+        return HEADER_PREFIX + " " + FORMAT_VERSION + " " + packageId + " " + packageVersion
+                + " " + fhirContext.getVersion().getVersion().getFhirVersionString();
+    }
+
+    private void load(String expectedHeader) throws IOException {
+        long start = System.currentTimeMillis();
+        boolean valid = false;
+        boolean full = false;
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String header = reader.readLine();
+                valid = expectedHeader.equals(header);
+                if (!valid) {
+                    log.warn("Discarding terminology cache {}: expected header '{}' but found '{}'",
+                            file, expectedHeader, header);
+                }
+                // The limit may have been lowered since the file was written
+                long loaded = valid ? header.getBytes(StandardCharsets.UTF_8).length + 1L : 0;
+                String line;
+                while (valid && !full && (line = reader.readLine()) != null) {
+                    loaded += line.getBytes(StandardCharsets.UTF_8).length + 1L;
+                    full = loaded > maxBytes;
+                    if (!full) {
+                        readEntry(line);
+                    }
+                }
+            }
+        }
+
+        if (full) {
+            log.warn("Terminology cache {} exceeds its limit of {} bytes, loaded {} entries and caching no further results",
+                    file, maxBytes, entries.size());
+        } else if (valid) {
+            // A crash may have left a partial last line
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                bytes = channel.size();
+                byte[] last = new byte[1];
+                channel.read(ByteBuffer.wrap(last), bytes - 1);
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+                if (last[0] != '\n') {
+                    writer.write('\n');
+                }
+            }
+            log.info("Loaded {} terminology cache entries from {} in {} ms",
+                    entries.size(), file, System.currentTimeMillis() - start);
+        } else {
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            writer.write(expectedHeader);
+            writer.write('\n');
+            writer.flush();
+            bytes = Files.size(file);
+            log.info("Created terminology cache {}", file);
+        }
+    }
+
+    private void readEntry(String line) {
+        if (line.isEmpty()) {
+            return;
+        }
+        try {
+            JsonNode entry = objectMapper.readTree(line);
+            if (entry.hasNonNull("k") && entry.hasNonNull("v")) {
+                entries.put(entry.get("k").asText(), entry.get("v"));
+            }
+        } catch (IOException e) {
+            log.warn("Skipping unreadable terminology cache entry in {}: {}", file, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * @return The stored value, or {@code null} if the key is unknown
+     */
+    public JsonNode get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Appends a value to the file and keeps it in memory, unless the key is already known
+     * or the file has reached its size limit
+     */
+    public void put(String key, JsonNode value) {
+        if (file == null || entries.containsKey(key)) {
+            return;
+        }
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.put("k", key);
+        entry.set("v", value);
+        String line = entry.toString();
+        long lineBytes = line.getBytes(StandardCharsets.UTF_8).length + 1L;
+
+        synchronized (this) {
+            if (writer == null || entries.containsKey(key)) {
+                return;
+            }
+            if (bytes + lineBytes > maxBytes) {
+                log.warn("Terminology cache {} reached its limit of {} bytes, further results are not cached",
+                        file, maxBytes);
+                closeWriter();
+                return;
+            }
+            try {
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+                bytes += lineBytes;
+            } catch (IOException e) {
+                log.warn("Cannot write terminology cache {}, further results are not cached: {}",
+                        file, e.getMessage());
+                closeWriter();
+                return;
+            }
+            entries.put(key, value);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Cannot close terminology cache {}: {}", file, e.getMessage());
+        } finally {
+            writer = null;
+        }
+    }
+}
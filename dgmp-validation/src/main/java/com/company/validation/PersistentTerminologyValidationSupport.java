@@ -0,0 +1,186 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
+import ca.uhn.fhir.parser.IParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hl7.fhir.common.hapi.validation.support.BaseValidationSupportWrapper;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.ValueSet;
+
+import java.util.function.Supplier;
+
+/**
+ * Second-level cache of code validations and ValueSet expansions beneath the in-memory
+ * {@link ObservableCachingValidationSupport}, backed by a {@link PersistentTerminologyCache}.
+ *
+ * Results are deterministic for a given package version, which keys the cache file.
+ * Code validations carrying concept properties and ValueSets without a canonical URL
+ * are passed through without caching.
+ *
+ * The display sent with a code is not part of the key, so free text in requests cannot
+ * create cache entries. A code validation is only cached and answered from the cache
+ * when the request has no display or the display of the cached result.
+ */
+class PersistentTerminologyValidationSupport extends BaseValidationSupportWrapper {
+
+    private final PersistentTerminologyCache cache;
+    private final FhirContext fhirContext;
+
+    PersistentTerminologyValidationSupport(FhirContext fhirContext,
+                                           IValidationSupport wrapped,
+                                           PersistentTerminologyCache cache) {
+        super(fhirContext, wrapped);
+        this.fhirContext = fhirContext;
+        this.cache = cache;
+    }
+
+    @Override
+    public CodeValidationResult validateCode(ValidationSupportContext context,
+                                             ConceptValidationOptions options,
+                                             String codeSystem,
+                                             String code,
+                                             String display,
+                                             String valueSetUrl) {
+        String key = "code|" + optionsKey(options) + "|" + codeSystem + "|" + code + "|" + valueSetUrl;
+        return cachedCodeValidation(key, display,
+                () -> super.validateCode(context, options, codeSystem, code, display, valueSetUrl));
+    }
+
+    @Override
+    public CodeValidationResult validateCodeInValueSet(ValidationSupportContext context,
+                                                       ConceptValidationOptions options,
+                                                       String codeSystem,
+                                                       String code,
+                                                       String display,
+                                                       IBaseResource valueSet) {
+        String valueSetKey = valueSetKey(valueSet);
+        if (valueSetKey == null) {
+            return super.validateCodeInValueSet(context, options, codeSystem, code, display, valueSet);
+        }
+        String key = "code-in-valueset|" + optionsKey(options) + "|" + codeSystem + "|" + code + "|" + valueSetKey;
+        return cachedCodeValidation(key, display,
+                () -> super.validateCodeInValueSet(context, options, codeSystem, code, display, valueSet));
+    }
+
+    @Override
+    public ValueSetExpansionOutcome expandValueSet(ValidationSupportContext context,
+                                                   ValueSetExpansionOptions options,
+                                                   IBaseResource valueSet) {
+        String valueSetKey = valueSetKey(valueSet);
+        if (valueSetKey == null) {
+            return super.expandValueSet(context, options, valueSet);
+        }
+        String key = "expansion|" + expansionOptionsKey(options) + "|" + valueSetKey;
+
+        IParser parser = fhirContext.newJsonParser();
+        JsonNode stored = cache.get(key);
+        if (stored != null) {
+            if (stored.has("none")) {
+                return null;
+            }
+            if (stored.has("error")) {
+                return new ValueSetExpansionOutcome(stored.get("error").asText());
+            }
+            return new ValueSetExpansionOutcome(parser.parseResource(stored.get("valueSet").asText()));
+        }
+
+        ValueSetExpansionOutcome outcome = super.expandValueSet(context, options, valueSet);
+        ObjectNode value = cache.getObjectMapper().createObjectNode();
+        if (outcome == null) {
+            value.put("none", true);
+        } else if (outcome.getValueSet() != null) {
+            value.put("valueSet", parser.encodeResourceToString(outcome.getValueSet()));
+        } else {
+            value.put("error", outcome.getError());
+        }
+        cache.put(key, value);
+        return outcome;
+    }
+
+    /**
+     * @param display Display sent with the code, or {@code null}
+     */
+    private CodeValidationResult cachedCodeValidation(String key,
+                                                      String display,
+                                                      Supplier<CodeValidationResult> delegate) {
+        JsonNode stored = cache.get(key);
+        if (stored != null && (display == null || display.equals(text(stored, "display")))) {
+            return fromJson(stored);
+        }
+        CodeValidationResult result = delegate.get();
+        if (result == null) {
+            if (display == null) {
+                cache.put(key, toJson(null));
+            }
+        } else if ((result.getProperties() == null || result.getProperties().isEmpty())
+                && (display == null || display.equals(result.getDisplay()))) {
+            cache.put(key, toJson(result));
+        }
+        return result;
+    }
+
+    private JsonNode toJson(CodeValidationResult result) {
+        ObjectNode value = cache.getObjectMapper().createObjectNode();
+        if (result == null) {
+            value.put("none", true);
+            return value;
+        }
+        value.put("code", result.getCode());
+        value.put("display", result.getDisplay());
+        value.put("severity", result.getSeverity() != null ? result.getSeverity().name() : null);
+        value.put("message", result.getMessage());
+        value.put("codeSystemVersion", result.getCodeSystemVersion());
+        value.put("sourceDetails", result.getSourceDetails());
+        return value;
+    }
+
+    private static CodeValidationResult fromJson(JsonNode value) {
+        if (value.has("none")) {
+            return null;
+        }
+        CodeValidationResult result = new CodeValidationResult()
+                .setCode(text(value, "code"))
+                .setDisplay(text(value, "display"))
+                .setMessage(text(value, "message"))
+                .setCodeSystemVersion(text(value, "codeSystemVersion"))
+                .setSourceDetails(text(value, "sourceDetails"));
+        String severity = text(value, "severity");
+        if (severity != null) {
+            result.setSeverity(IssueSeverity.valueOf(severity));
+        }
+        return result;
+    }
+
+    private static String text(JsonNode value, String field) {
+        JsonNode node = value.get(field);
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    /**
+     * @return url|version of the ValueSet, or {@code null} if it has no canonical URL
+     */
+    private static String valueSetKey(IBaseResource valueSet) {
+        if (valueSet instanceof ValueSet r4ValueSet && r4ValueSet.hasUrl()) {
+            return r4ValueSet.getUrl() + "|" + r4ValueSet.getVersion();
+        }
+        return null;
+    }
+
+    private static String optionsKey(ConceptValidationOptions options) {
+        return options == null ? "-" : options.isInferSystem() + "," + options.isValidateDisplay();
+    }
+
+    private static String expansionOptionsKey(ValueSetExpansionOptions options) {
+        if (options == null) {
+            return "-";
+        }
+        return options.getFilter() + "," + options.getOffset() + "," + options.getCount() + ","
+                + options.isIncludeHierarchy() + "," + options.isFailOnMissingCodeSystem() + ","
+                + options.getTheDisplayLanguage();
+    }
+}
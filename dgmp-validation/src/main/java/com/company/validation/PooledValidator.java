@@ -0,0 +1,57 @@
+package com.company.validation;
+
+import ca.uhn.fhir.validation.FhirValidator;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Validator owned by a {@link ValidatorPool}.
+ * An instance is only ever used by the thread that borrowed it, and by the run
+ * thread of a validation started by that thread.
+ */
+public final class PooledValidator {
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final FhirValidator validator;
+    private final ValidationDeadlineSupport deadline;
+    private volatile CompletableFuture<Void> run = IDLE;
+
+    public PooledValidator(FhirValidator validator) {
+        this(validator, null);
+    }
+
+    PooledValidator(FhirValidator validator, ValidationDeadlineSupport deadline) {
+        this.validator = validator;
+        this.deadline = deadline;
+    }
+
+    public FhirValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * @return The time budget guard of the validator, or {@code null} if it has none
+     */
+    ValidationDeadlineSupport getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Marks the validator busy with a run that may outlive the borrowing request
+     */
+    void startRun() {
+        run = new CompletableFuture<>();
+    }
+
+    void endRun() {
+        run.complete(null);
+    }
+
+    /**
+     * @return Completed once the validator has no run in progress
+     */
+    CompletableFuture<Void> whenIdle() {
+        return run;
+    }
+}
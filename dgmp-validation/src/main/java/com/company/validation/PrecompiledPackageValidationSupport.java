@@ -0,0 +1,105 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.common.hapi.validation.support.PrePopulatedValidationSupport;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Validation support backed by a precompiled profile artifact.
+ *
+ * The artifact is written at build time by {@link ProfileSnapshotCompiler} and contains
+ * all conformance resources of a package with snapshots already generated, so no
+ * tgz extraction or snapshot generation happens at startup.
+ */
+public class PrecompiledPackageValidationSupport extends PrePopulatedValidationSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(PrecompiledPackageValidationSupport.class);
+
+    static final String HEADER_PREFIX = "# dgmp-precompiled-profiles";
+    static final int FORMAT_VERSION = 1;
+
+    private PrecompiledPackageValidationSupport(FhirContext fhirContext) {
+        super(fhirContext);
+    }
+
+    /**
+     * @return Classpath location of the artifact for the given package
+     */
+    static String artifactPath(String packageId, String packageVersion) {
+        return "precompiled/" + packageId + "-" + packageVersion + ".snapshots.ndjson.gz";
+    }
+
+    /**
+     * Loads the precompiled artifact of a package from the classpath
+     *
+     * @return The validation support, or {@code null} if the artifact is absent or
+     *         was built for another package version, format or FHIR version
+     */
+    public static PrecompiledPackageValidationSupport loadFromClasspath(
+            FhirContext fhirContext, String packageId, String packageVersion) {
+        String path = artifactPath(packageId, packageVersion);
+        InputStream in = PrecompiledPackageValidationSupport.class.getClassLoader().getResourceAsStream(path);
+        if (in == null) {
+            log.warn("No precompiled profile artifact found at {}, generating snapshots at startup", path);
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(in), StandardCharsets.UTF_8))) {
+            String expectedHeader = header(packageId, packageVersion, fhirContext);
+            String header = reader.readLine();
+            if (!expectedHeader.equals(header)) {
+                log.warn("Ignoring precompiled profile artifact {}: expected header '{}' but found '{}'",
+                        path, expectedHeader, header);
+                return null;
+            }
+
+            PrecompiledPackageValidationSupport support = new PrecompiledPackageValidationSupport(fhirContext);
+            IParser parser = fhirContext.newJsonParser();
+            int count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    support.add(parser.parseResource(line));
+                    count++;
+                }
+            }
+
+            log.info("Loaded {} precompiled conformance resources for {}#{} in {} ms",
+                    count, packageId, packageVersion, System.currentTimeMillis() - start);
+            return support;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read precompiled profile artifact {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    static String header(String packageId, String packageVersion, FhirContext fhirContext) {
+        return HEADER_PREFIX + " " + FORMAT_VERSION + " " + packageId + " " + packageVersion
+                + " " + fhirContext.getVersion().getVersion().getFhirVersionString();
+    }
+
+    private void add(IBaseResource resource) {
+        if (resource instanceof StructureDefinition structureDefinition) {
+            addStructureDefinition(structureDefinition);
+        } else if (resource instanceof ValueSet valueSet) {
+            addValueSet(valueSet);
+        } else if (resource instanceof CodeSystem codeSystem) {
+            addCodeSystem(codeSystem);
+        }
+    }
+}
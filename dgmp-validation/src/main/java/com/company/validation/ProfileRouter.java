@@ -0,0 +1,181 @@
+package com.company.validation;
+
+import com.company.fhir.EpaProfiles;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.CanonicalType;
+import org.hl7.fhir.r4.model.ElementDefinition;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Dispatches documents to validators dedicated to the EPA profile in their {@code meta.profile}.
+ *
+ * Each route has validator pools and settings of its own, so the validator contexts of its
+ * instances only ever load the dependency closure of one profile and stay warm for it.
+ * Documents of other profiles are validated on the shared pools. The time spent per route,
+ * including the wait for a validator, is recorded as {@code dgmp.validation.route}.
+ */
+public class ProfileRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileRouter.class);
+
+    public static final String DEFAULT_ROUTE = "default";
+
+    private final ValidatorPools defaultPools;
+    private final Map<String, Route> routes;
+    private final Map<String, Map<ValidationLevel, Timer>> timers = new HashMap<>();
+
+    /**
+     * @param routes Routes by profile name, see {@link ValidationMetrics#profileTag(IBaseResource)}
+     */
+    public ProfileRouter(ValidatorPools defaultPools, Collection<Route> routes, MeterRegistry meterRegistry) {
+        this.defaultPools = defaultPools;
+        this.routes = new LinkedHashMap<>();
+        for (Route route : routes) {
+            this.routes.put(route.getProfile(), route);
+        }
+        timers.put(DEFAULT_ROUTE, timers(DEFAULT_ROUTE, meterRegistry));
+        for (String profile : this.routes.keySet()) {
+            timers.put(profile, timers(profile, meterRegistry));
+        }
+        log.info("Profile routes: {}", this.routes.isEmpty() ? "none" : this.routes.values());
+    }
+
+    private static Map<ValidationLevel, Timer> timers(String route, MeterRegistry meterRegistry) {
+        Map<ValidationLevel, Timer> timers = new EnumMap<>(ValidationLevel.class);
+        for (ValidationLevel level : ValidationLevel.values()) {
+            timers.put(level, Timer.builder("dgmp.validation.route")
+                    .description("Duration of validations per profile route, including the wait for a validator")
+                    .tag("route", route)
+                    .tag("level", level.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        return timers;
+    }
+
+    /**
+     * @return A router validating all documents on the given pools
+     */
+    public static ProfileRouter none(ValidatorPools defaultPools, MeterRegistry meterRegistry) {
+        return new ProfileRouter(defaultPools, List.of(), meterRegistry);
+    }
+
+    /**
+     * Runs the work on a validator of the document's route and records its duration
+     */
+    public <T> T execute(IBaseResource resource, ValidationLevel level, Function<PooledValidator, T> work) {
+        Route route = routes.get(ValidationMetrics.profileTag(resource));
+        ValidatorPools pools = route != null ? route.getPools() : defaultPools;
+        Timer timer = timers.get(route != null ? route.getProfile() : DEFAULT_ROUTE).get(pools.resolve(level));
+        long start = System.nanoTime();
+        try {
+            return pools.get(level).execute(work);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Collection<Route> getRoutes() {
+        return routes.values();
+    }
+
+    /**
+     * Validators dedicated to one EPA profile
+     */
+    public static class Route {
+
+        private final String profile;
+        private final ValidatorPools pools;
+        private final ValidatorSettings settings;
+
+        /**
+         * @param profile Profile name without the EPA base URL, e.g. "epa-medication-request"
+         */
+        public Route(String profile, ValidatorPools pools, ValidatorSettings settings) {
+            this.profile = profile;
+            this.pools = pools;
+            this.settings = settings;
+        }
+
+        /**
+         * Fetches the profile and everything it depends on (type profiles, bound ValueSets)
+         * through the validation support, so the shared caches hold its dependency closure.
+         * This does not touch the route's validators: each instance loads the closure into its
+         * own context on its first validation, see {@link ValidationWarmup}.
+         *
+         * @return Number of conformance resources fetched
+         */
+        public int prefetchDependencies(IValidationSupport validationSupport) {
+            Set<String> seen = new HashSet<>();
+            Deque<String> profiles = new ArrayDeque<>();
+            profiles.add(EpaProfiles.BASE_URL + profile);
+            int fetched = 0;
+            while (!profiles.isEmpty()) {
+                String url = profiles.poll();
+                if (!seen.add(url)) {
+                    continue;
+                }
+                if (!(validationSupport.fetchStructureDefinition(url) instanceof StructureDefinition definition)) {
+                    continue;
+                }
+                fetched++;
+                for (ElementDefinition element : definition.getSnapshot().getElement()) {
+                    for (ElementDefinition.TypeRefComponent type : element.getType()) {
+                        for (CanonicalType typeProfile : type.getProfile()) {
+                            if (typeProfile.hasValue()) {
+                                profiles.add(withoutVersion(typeProfile.getValue()));
+                            }
+                        }
+                    }
+                    if (element.getBinding().hasValueSet()) {
+                        String valueSet = withoutVersion(element.getBinding().getValueSet());
+                        if (seen.add(valueSet) && validationSupport.fetchValueSet(valueSet) != null) {
+                            fetched++;
+                        }
+                    }
+                }
+            }
+            return fetched;
+        }
+
+        private static String withoutVersion(String url) {
+            int bar = url.indexOf('|');
+            return bar >= 0 ? url.substring(0, bar) : url;
+        }
+
+        public String getProfile() {
+            return profile;
+        }
+
+        public ValidatorPools getPools() {
+            return pools;
+        }
+
+        public ValidatorSettings getSettings() {
+            return settings;
+        }
+
+        @Override
+        public String toString() {
+            return profile + "[" + settings + "]";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.company.validation;
+
+import com.company.fhir.EpaProfiles;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.common.hapi.validation.support.CommonCodeSystemsTerminologyService;
+import org.hl7.fhir.common.hapi.validation.support.InMemoryTerminologyServerValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.NpmPackageValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.SnapshotGeneratingValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build-time tool that resolves the EPA Medication package, generates all snapshots
+ * and writes the precompiled artifact read by {@link PrecompiledPackageValidationSupport}.
+ *
+ * Usage: ProfileSnapshotCompiler &lt;output class directory&gt;
+ *
+ * Fails if the package is not available, so a build never ships without the artifact
+ * unnoticed. Builds that deliberately rely on the tgz or a package store at startup skip
+ * the tool with {@code -Dprofiles.precompile.skip=true}.
+ */
+public final class ProfileSnapshotCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileSnapshotCompiler.class);
+
+    private ProfileSnapshotCompiler() {}
+
+    public static void main(String[] args) throws IOException {
+        Path outputDirectory = Path.of(args.length > 0 ? args[0] : "target/classes");
+        FhirContext fhirContext = FhirContext.forR4();
+
+        NpmPackageValidationSupport npmPackageSupport = new NpmPackageValidationSupport(fhirContext);
+        try {
+            npmPackageSupport.loadPackageFromClasspath(FhirValidatorConfig.EPA_PACKAGE_PATH);
+        } catch (Exception e) {
+            throw new IllegalStateException("EPA Medication package " + FhirValidatorConfig.EPA_PACKAGE_PATH
+                    + " not available for profile precompilation; add it to the classpath or build with"
+                    + " -Dprofiles.precompile.skip=true to load the profiles at startup instead", e);
+        }
+
+        SnapshotGeneratingValidationSupport snapshotGenerator = new SnapshotGeneratingValidationSupport(fhirContext);
+        ValidationSupportChain chain = new ValidationSupportChain(
+                npmPackageSupport,
+                new DefaultProfileValidationSupport(fhirContext),
+                snapshotGenerator,
+                new InMemoryTerminologyServerValidationSupport(fhirContext),
+                new CommonCodeSystemsTerminologyService(fhirContext)
+        );
+        ValidationSupportContext supportContext = new ValidationSupportContext(chain);
+
+        Path artifact = outputDirectory.resolve(
+                PrecompiledPackageValidationSupport.artifactPath(EpaProfiles.PACKAGE_ID, EpaProfiles.PACKAGE_VERSION));
+        Files.createDirectories(artifact.getParent());
+
+        IParser parser = fhirContext.newJsonParser();
+        int count = 0;
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(artifact)), StandardCharsets.UTF_8))) {
+            writer.write(PrecompiledPackageValidationSupport.header(
+                    EpaProfiles.PACKAGE_ID, EpaProfiles.PACKAGE_VERSION, fhirContext));
+            writer.newLine();
+
+            for (IBaseResource resource : npmPackageSupport.fetchAllConformanceResources()) {
+                if (resource instanceof StructureDefinition structureDefinition && !structureDefinition.hasSnapshot()) {
+                    log.info("Generating snapshot for {}", structureDefinition.getUrl());
+                    resource = snapshotGenerator.generateSnapshot(
+                            supportContext,
+                            structureDefinition,
+                            structureDefinition.getUrl(),
+                            structureDefinition.getUrl(),
+                            structureDefinition.getName());
+                }
+                writer.write(parser.encodeResourceToString(resource));
+                writer.newLine();
+                count++;
+            }
+        }
+
+        log.info("Wrote {} precompiled conformance resources to {}", count, artifact);
+    }
+}
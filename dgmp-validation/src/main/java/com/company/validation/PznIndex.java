@@ -0,0 +1,103 @@
+package com.company.validation;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only, memory-mapped index of PZN master data written by {@link PznIndexBuilder}.
+ *
+ * Layout (big-endian): the magic {@code DGMPPZN1}, the entry count n, n sorted PZNs as int,
+ * n + 1 offsets into the name section and the UTF-8 encoded names. Lookups are a binary search
+ * on the mapped file, so the master data stays off-heap regardless of its size.
+ */
+public final class PznIndex {
+
+    static final byte[] MAGIC = "DGMPPZN1".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int codesStart;
+    private final int offsetsStart;
+    private final int namesStart;
+
+    private PznIndex(Path file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalStateException(file + " is not a PZN index");
+        }
+        this.count = buffer.getInt(MAGIC.length);
+        this.codesStart = MAGIC.length + Integer.BYTES;
+        this.offsetsStart = codesStart + count * Integer.BYTES;
+        this.namesStart = offsetsStart + (count + 1) * Integer.BYTES;
+        if (namesStart > buffer.capacity() || namesStart + nameOffset(count) != buffer.capacity()) {
+            throw new IllegalStateException("PZN index " + file + " is truncated");
+        }
+    }
+
+    /**
+     * Maps an index file
+     *
+     * @throws IllegalStateException if the file is not a complete PZN index
+     */
+    public static PznIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("PZN index " + file + " exceeds 2 GB");
+            }
+            return new PznIndex(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param pzn The PZN as number
+     * @return Position of the PZN in the index, or a negative value if it is not contained
+     */
+    public int indexOf(int pzn) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = buffer.getInt(codesStart + mid * Integer.BYTES);
+            if (value < pzn) {
+                low = mid + 1;
+            } else if (value > pzn) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param index Position returned by {@link #indexOf(int)}
+     * @return The article name, empty if the master data has none
+     */
+    public String name(int index) {
+        int start = nameOffset(index);
+        byte[] bytes = new byte[nameOffset(index + 1) - start];
+        buffer.get(namesStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int nameOffset(int index) {
+        return buffer.getInt(offsetsStart + index * Integer.BYTES);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,136 @@
+package com.company.validation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tool that converts a PZN master data CSV export into the index read by {@link PznIndex}.
+ *
+ * Usage: PznIndexBuilder &lt;csv file&gt; &lt;index file&gt; [name column]
+ *
+ * The first column holds the PZN, the name column (default 1, zero-based) the article name.
+ * Fields are separated by ';' or ',' (detected from the first line) and may be quoted.
+ * A header line and rows with malformed PZNs or wrong check digits are skipped; for
+ * duplicate PZNs the last row wins.
+ */
+public final class PznIndexBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(PznIndexBuilder.class);
+
+    private PznIndexBuilder() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PznIndexBuilder <csv file> <index file> [name column]");
+            System.exit(2);
+        }
+        Path csv = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        int nameColumn = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        long start = System.currentTimeMillis();
+        Map<Integer, String> names = new HashMap<>();
+        int lines = 0;
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            char delimiter = 0;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (delimiter == 0) {
+                    delimiter = line.indexOf(';') >= 0 ? ';' : ',';
+                }
+                lines++;
+                String[] fields = split(line, delimiter);
+                String pzn = fields[0];
+                if (!PznValidationSupport.isWellFormed(pzn) || !PznValidationSupport.hasValidCheckDigit(pzn)) {
+                    if (lines > 1) {
+                        skipped++;
+                    }
+                    continue;
+                }
+                names.put(Integer.parseInt(pzn), nameColumn < fields.length ? fields[nameColumn] : "");
+            }
+        }
+
+        int[] codes = names.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(codes);
+        write(output, codes, names);
+
+        log.info("Wrote {} PZNs to {} in {} ms ({} rows skipped)",
+                codes.length, output, System.currentTimeMillis() - start, skipped);
+    }
+
+    private static void write(Path output, int[] codes, Map<Integer, String> names) throws IOException {
+        byte[][] encoded = new byte[codes.length][];
+        for (int i = 0; i < codes.length; i++) {
+            encoded[i] = names.get(codes[i]).getBytes(StandardCharsets.UTF_8);
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            out.write(PznIndex.MAGIC);
+            out.writeInt(codes.length);
+            for (int code : codes) {
+                out.writeInt(code);
+            }
+            int offset = 0;
+            for (byte[] name : encoded) {
+                out.writeInt(offset);
+                offset = Math.addExact(offset, name.length);
+            }
+            out.writeInt(offset);
+            for (byte[] name : encoded) {
+                out.write(name);
+            }
+        }
+    }
+
+    /**
+     * Splits a CSV line, honoring double-quoted fields with "" as escaped quote
+     */
+    static String[] split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+}
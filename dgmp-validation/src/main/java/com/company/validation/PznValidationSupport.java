@@ -0,0 +1,144 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import com.company.fhir.GeneratedIdentifiers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Validates codes of the PZN code system against a {@link PznIndex} of the PZN master data.
+ *
+ * A code must have eight digits and a valid modulo 11 check digit and must be contained in the
+ * master data. A display differing from the article name yields a warning.
+ */
+public class PznValidationSupport implements IValidationSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(PznValidationSupport.class);
+
+    public static final String CODE_SYSTEM = "http://fhir.de/CodeSystem/ifa/pzn";
+
+    private final FhirContext fhirContext;
+    private final PznIndex index;
+
+    public PznValidationSupport(FhirContext fhirContext, PznIndex index) {
+        this.fhirContext = fhirContext;
+        this.index = index;
+    }
+
+    /**
+     * Maps the index file built by {@link PznIndexBuilder}
+     *
+     * @throws IllegalStateException if the file is missing or not a valid index
+     */
+    public static PznValidationSupport open(FhirContext fhirContext, Path indexFile) {
+        if (!Files.isRegularFile(indexFile)) {
+            throw new IllegalStateException("PZN index " + indexFile + " does not exist");
+        }
+        try {
+            PznIndex index = PznIndex.open(indexFile);
+            log.info("Mapped PZN index {} with {} entries", indexFile, index.size());
+            return new PznValidationSupport(fhirContext, index);
+        } catch (IOException e) {
+            throw new IllegalStateException("PZN index " + indexFile + " cannot be read", e);
+        }
+    }
+
+    static boolean isWellFormed(String pzn) {
+        if (pzn == null || pzn.length() != 8) {
+            return false;
+        }
+        for (int i = 0; i < pzn.length(); i++) {
+            if (pzn.charAt(i) < '0' || pzn.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param pzn A well-formed PZN
+     */
+    static boolean hasValidCheckDigit(String pzn) {
+        int checkDigit = GeneratedIdentifiers.pznCheckDigit(Integer.parseInt(pzn.substring(0, 7)));
+        return checkDigit < 10 && checkDigit == pzn.charAt(7) - '0';
+    }
+
+    @Override
+    public boolean isCodeSystemSupported(ValidationSupportContext context, String system) {
+        return CODE_SYSTEM.equals(system);
+    }
+
+    @Override
+    public CodeValidationResult validateCode(ValidationSupportContext context,
+                                             ConceptValidationOptions options,
+                                             String codeSystem,
+                                             String code,
+                                             String display,
+                                             String valueSetUrl) {
+        if (!CODE_SYSTEM.equals(codeSystem) || valueSetUrl != null) {
+            return null;
+        }
+        if (!isWellFormed(code)) {
+            return error("PZN '" + code + "' must consist of eight digits");
+        }
+        if (!hasValidCheckDigit(code)) {
+            return error("PZN '" + code + "' has an invalid check digit");
+        }
+        int position = index.indexOf(Integer.parseInt(code));
+        if (position < 0) {
+            return error("PZN '" + code + "' is not contained in the PZN master data");
+        }
+
+        String name = index.name(position);
+        CodeValidationResult result = new CodeValidationResult()
+                .setCode(code)
+                .setDisplay(name.isEmpty() ? null : name);
+        if (display != null && !name.isEmpty() && !display.equalsIgnoreCase(name)) {
+            result.setSeverity(IssueSeverity.WARNING)
+                    .setMessage("Display '" + display + "' does not match the article name '" + name
+                            + "' of PZN " + code);
+        }
+        return result;
+    }
+
+    @Override
+    public LookupCodeResult lookupCode(ValidationSupportContext context,
+                                       String system,
+                                       String code,
+                                       String displayLanguage) {
+        if (!CODE_SYSTEM.equals(system)) {
+            return null;
+        }
+        int position = isWellFormed(code) && hasValidCheckDigit(code) ? index.indexOf(Integer.parseInt(code)) : -1;
+        if (position < 0) {
+            return LookupCodeResult.notFound(system, code);
+        }
+        LookupCodeResult result = new LookupCodeResult()
+                .setSearchedForSystem(system)
+                .setSearchedForCode(code)
+                .setFound(true);
+        result.setCodeDisplay(index.name(position));
+        return result;
+    }
+
+    /**
+     * Results without a code are not OK for HAPI
+     */
+    private static CodeValidationResult error(String message) {
+        return new CodeValidationResult()
+                .setSeverity(IssueSeverity.ERROR)
+                .setMessage(message);
+    }
+
+    @Override
+    public FhirContext getFhirContext() {
+        return fhirContext;
+    }
+}
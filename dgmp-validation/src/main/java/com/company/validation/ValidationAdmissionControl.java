@@ -0,0 +1,268 @@
+package com.company.validation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of validation.
+ *
+ * Bounds the number of concurrent validations and the payload bytes they hold. Requests
+ * beyond either limit wait up to the queue timeout; when the queue is full or the timeout
+ * expires they are rejected with {@link ValidationRejectedException}, so a burst of large
+ * documents is shed instead of driving the JVM into GC thrashing.
+ *
+ * A request larger than the byte budget is admitted alone, so it cannot starve. A request
+ * without Content-Length may stream up to the payload limit and is accounted with it.
+ *
+ * Asynchronous validation jobs {@link #reserve(long) reserve} their bytes from submission
+ * until the job has finished, without taking one of the concurrent validation slots.
+ * Batch documents wait for admission {@link #acquireWithoutTimeout(long) without the queue timeout},
+ * as the batch already bounds the documents it holds.
+ */
+@Component
+public class ValidationAdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationAdmissionControl.class);
+
+    public static final String REJECTED_QUEUE_FULL = "queue-full";
+    public static final String REJECTED_TIMEOUT = "timeout";
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final long maxInFlightBytes;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final long retryAfterSeconds;
+    private final long maxPayloadBytes;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+    private int active;
+    private int queued;
+    private long inFlightBytes;
+
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+    private final Timer waitTimer;
+
+    /**
+     * @param maxConcurrent Concurrent validations, 0 for the size of the validator pool
+     * @param maxPayloadBytes Largest payload a request may stream, accounted for requests without Content-Length
+     */
+    public ValidationAdmissionControl(
+            MeterRegistry meterRegistry,
+            ValidatorPool validatorPool,
+            @Value("${hapi.fhir.validation.admission.enabled:true}") boolean enabled,
+            @Value("${hapi.fhir.validation.admission.max-concurrent:0}") int maxConcurrent,
+            @Value("${hapi.fhir.validation.admission.max-in-flight-bytes:268435456}") long maxInFlightBytes,
+            @Value("${hapi.fhir.validation.admission.max-queued:200}") int maxQueued,
+            @Value("${hapi.fhir.validation.admission.queue-timeout-ms:2000}") long queueTimeoutMillis,
+            @Value("${hapi.fhir.validation.admission.retry-after-seconds:1}") long retryAfterSeconds,
+            @Value("${hapi.fhir.validation.max-payload-bytes:10485760}") long maxPayloadBytes) {
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : validatorPool.getSize();
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.maxPayloadBytes = maxPayloadBytes;
+
+        Gauge.builder("dgmp.validation.admission.active", this, ValidationAdmissionControl::getActive)
+                .description("Validations admitted and running")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.admission.queued", this, ValidationAdmissionControl::getQueued)
+                .description("Requests waiting for admission")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.admission.in-flight", this, ValidationAdmissionControl::getInFlightBytes)
+                .description("Payload bytes of admitted validations and queued validation jobs")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.rejectedQueueFull = rejectedCounter(meterRegistry, REJECTED_QUEUE_FULL);
+        this.rejectedTimeout = rejectedCounter(meterRegistry, REJECTED_TIMEOUT);
+        this.waitTimer = Timer.builder("dgmp.validation.admission.wait")
+                .description("Time spent waiting for admission")
+                .register(meterRegistry);
+
+        log.info("Validation admission control {} (maxConcurrent={}, maxInFlightBytes={}, maxQueued={}, queueTimeout={} ms)",
+                enabled ? "enabled" : "disabled", this.maxConcurrent, maxInFlightBytes, maxQueued, queueTimeoutMillis);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("dgmp.validation.admission.rejected")
+                .description("Requests rejected by admission control")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits until the request may be validated
+     *
+     * @param contentLength Declared payload size, or a negative value if unknown
+     * @return A permit to close once the validation is done
+     * @throws ValidationRejectedException if the queue is full or the request waited too long
+     */
+    public Permit acquire(long contentLength) {
+        return acquire(contentLength, true, true);
+    }
+
+    /**
+     * Waits until the document may be validated, without the queue timeout
+     *
+     * @param contentLength Declared payload size, or a negative value if unknown
+     * @return A permit to close once the validation is done
+     * @throws ValidationRejectedException if the queue is full or the wait was interrupted
+     */
+    public Permit acquireWithoutTimeout(long contentLength) {
+        return acquire(contentLength, true, false);
+    }
+
+    /**
+     * Waits until the payload bytes of a validation job fit into the byte budget
+     *
+     * @param contentLength Declared payload size, or a negative value if unknown
+     * @return A permit to close once the job has finished
+     * @throws ValidationRejectedException if the queue is full or the request waited too long
+     */
+    public Permit reserve(long contentLength) {
+        return acquire(contentLength, false, true);
+    }
+
+    private Permit acquire(long contentLength, boolean slot, boolean timed) {
+        if (!enabled) {
+            return new Permit(0, false, false);
+        }
+        // Reading stops at the payload limit, so no request holds more
+        long bytes = contentLength >= 0 ? Math.min(contentLength, maxPayloadBytes) : maxPayloadBytes;
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (canAdmit(bytes, slot)) {
+                return admit(bytes, slot);
+            }
+            if (queued >= maxQueued) {
+                rejectedQueueFull.increment();
+                throw new ValidationRejectedException(
+                        "Too many validation requests queued (" + maxQueued + ")", retryAfterSeconds);
+            }
+
+            queued++;
+            try {
+                long remaining = queueTimeoutNanos;
+                while (!canAdmit(bytes, slot)) {
+                    if (!timed) {
+                        released.await();
+                        continue;
+                    }
+                    if (remaining <= 0) {
+                        rejectedTimeout.increment();
+                        throw new ValidationRejectedException("Validation request not admitted within "
+                                + TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos) + " ms", retryAfterSeconds);
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ValidationRejectedException("Interrupted while waiting for admission", retryAfterSeconds);
+            } finally {
+                queued--;
+            }
+            return admit(bytes, slot);
+        } finally {
+            lock.unlock();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean canAdmit(long bytes, boolean slot) {
+        return (!slot || active < maxConcurrent)
+                && (inFlightBytes == 0 || inFlightBytes + bytes <= maxInFlightBytes);
+    }
+
+    private Permit admit(long bytes, boolean slot) {
+        if (slot) {
+            active++;
+        }
+        inFlightBytes += bytes;
+        return new Permit(bytes, slot, true);
+    }
+
+    private void release(long bytes, boolean slot) {
+        lock.lock();
+        try {
+            if (slot) {
+                active--;
+            }
+            inFlightBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Suggested delay before a client retries a rejected request
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return inFlightBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admission of one request or validation job, released on {@link #close()}
+     */
+    public final class Permit implements AutoCloseable {
+        private final long bytes;
+        private final boolean slot;
+        private boolean held;
+
+        private Permit(long bytes, boolean slot, boolean held) {
+            this.bytes = bytes;
+            this.slot = slot;
+            this.held = held;
+        }
+
+        @Override
+        public void close() {
+            if (held) {
+                held = false;
+                release(bytes, slot);
+            }
+        }
+    }
+}
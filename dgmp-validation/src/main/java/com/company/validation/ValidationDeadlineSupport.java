@@ -0,0 +1,137 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
+import org.hl7.fhir.common.hapi.validation.support.BaseValidationSupportWrapper;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+/**
+ * Enforces the validation time budget of one pooled validator.
+ *
+ * The instance validator cannot be interrupted, but it calls its validation support for
+ * profiles, codes and value sets missing from its own caches. Once the deadline has passed,
+ * every such call throws {@link ValidationTimeExceededException}, which ends the validation
+ * run early. Runs reaching no check are bounded by {@link ValidationTimeLimit}.
+ */
+class ValidationDeadlineSupport extends BaseValidationSupportWrapper {
+
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private volatile long deadlineNanos = NO_DEADLINE;
+    private volatile boolean exceeded;
+
+    ValidationDeadlineSupport(FhirContext fhirContext, IValidationSupport wrapped) {
+        super(fhirContext, wrapped);
+    }
+
+    /**
+     * Starts the budget for the next validation run
+     *
+     * @param budgetNanos Time budget, or 0 for no limit
+     */
+    synchronized void start(long budgetNanos) {
+        exceeded = false;
+        deadlineNanos = budgetNanos > 0 ? System.nanoTime() + budgetNanos : NO_DEADLINE;
+    }
+
+    /**
+     * Ends the budget of the current run at once, so its next check fails
+     */
+    synchronized void expire() {
+        if (deadlineNanos != NO_DEADLINE) {
+            exceeded = true;
+            deadlineNanos = System.nanoTime();
+        }
+    }
+
+    synchronized void clear() {
+        deadlineNanos = NO_DEADLINE;
+    }
+
+    /**
+     * @return Whether the last validation run exceeded its budget
+     */
+    boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * @throws ValidationTimeExceededException if the budget of the current run is used up
+     */
+    void check() {
+        long deadline = deadlineNanos;
+        if (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) {
+            exceeded = true;
+            throw new ValidationTimeExceededException();
+        }
+    }
+
+    @Override
+    public <T extends IBaseResource> T fetchResource(Class<T> type, String uri) {
+        check();
+        return super.fetchResource(type, uri);
+    }
+
+    @Override
+    public IBaseResource fetchStructureDefinition(String url) {
+        check();
+        return super.fetchStructureDefinition(url);
+    }
+
+    @Override
+    public IBaseResource fetchCodeSystem(String system) {
+        check();
+        return super.fetchCodeSystem(system);
+    }
+
+    @Override
+    public IBaseResource fetchValueSet(String url) {
+        check();
+        return super.fetchValueSet(url);
+    }
+
+    @Override
+    public boolean isCodeSystemSupported(ValidationSupportContext context, String system) {
+        check();
+        return super.isCodeSystemSupported(context, system);
+    }
+
+    @Override
+    public boolean isValueSetSupported(ValidationSupportContext context, String valueSetUrl) {
+        check();
+        return super.isValueSetSupported(context, valueSetUrl);
+    }
+
+    @Override
+    public CodeValidationResult validateCode(ValidationSupportContext context,
+                                             ConceptValidationOptions options,
+                                             String codeSystem,
+                                             String code,
+                                             String display,
+                                             String valueSetUrl) {
+        check();
+        return super.validateCode(context, options, codeSystem, code, display, valueSetUrl);
+    }
+
+    @Override
+    public CodeValidationResult validateCodeInValueSet(ValidationSupportContext context,
+                                                       ConceptValidationOptions options,
+                                                       String codeSystem,
+                                                       String code,
+                                                       String display,
+                                                       IBaseResource valueSet) {
+        check();
+        return super.validateCodeInValueSet(context, options, codeSystem, code, display, valueSet);
+    }
+
+    @Override
+    public ValueSetExpansionOutcome expandValueSet(ValidationSupportContext context,
+                                                   ValueSetExpansionOptions options,
+                                                   IBaseResource valueSet) {
+        check();
+        return super.expandValueSet(context, options, valueSet);
+    }
+}
@@ -0,0 +1,105 @@
+package com.company.validation;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous validation of one document, see {@link ValidationJobService}
+ */
+public class ValidationJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private final String id;
+    private final ValidationLevel level;
+    private final Instant submittedAt;
+    private final CompletableFuture<ValidationResponse> completion = new CompletableFuture<>();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant completedAt;
+    private volatile String error;
+
+    ValidationJob(String id, ValidationLevel level) {
+        this.id = id;
+        this.level = level;
+        this.submittedAt = Instant.now();
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void complete(ValidationResponse response) {
+        completedAt = Instant.now();
+        status = Status.DONE;
+        completion.complete(response);
+    }
+
+    void fail(String message) {
+        completedAt = Instant.now();
+        error = message;
+        status = Status.FAILED;
+        completion.complete(null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ValidationLevel getLevel() {
+        return level;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return completion.isDone();
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * @return Start of the validation, or {@code null} while queued
+     */
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return End of the validation, or {@code null} while not finished
+     */
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * @return The validation result, or {@code null} if the job is not done
+     */
+    public ValidationResponse getResponse() {
+        return completion.getNow(null);
+    }
+
+    /**
+     * @return Reason of a failed job
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return A future completed with this job once it is finished; cancelling it does not affect the job
+     */
+    public CompletableFuture<ValidationJob> whenFinished() {
+        return completion.thenApply(response -> this);
+    }
+}
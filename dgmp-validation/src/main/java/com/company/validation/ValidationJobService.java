@@ -0,0 +1,194 @@
+package com.company.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates documents asynchronously for clients that cannot hold a connection open
+ * for the duration of a validation.
+ *
+ * Submitted documents are buffered and queued for a small pool of job threads, which borrow
+ * validators from the same pools as synchronous requests. The buffered bytes are reserved from
+ * the {@link ValidationAdmissionControl} byte budget before the document is read and until the
+ * job has finished. Jobs are kept in a bounded store
+ * and expire a while after submission and again after completion; expired jobs are unknown.
+ */
+@Service
+public class ValidationJobService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationJobService.class);
+
+    private final EpaMedicationValidationService validationService;
+    private final ValidationAdmissionControl admissionControl;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, ValidationJob> jobs;
+    private final long retryAfterSeconds;
+    private final long maxWaitMillis;
+    private final Timer waitTimer;
+    private final Timer latencyTimer;
+    private final Counter rejected;
+
+    /**
+     * @param threads Job threads, 0 for half the validator pool size so synchronous requests keep validators
+     * @param maxWaitMillis Longest time a client may wait for a job result in one request
+     */
+    public ValidationJobService(
+            EpaMedicationValidationService validationService,
+            ValidationAdmissionControl admissionControl,
+            ValidatorPool validatorPool,
+            MeterRegistry meterRegistry,
+            @Value("${hapi.fhir.validation.jobs.threads:0}") int threads,
+            @Value("${hapi.fhir.validation.jobs.max-queued:100}") int maxQueued,
+            @Value("${hapi.fhir.validation.jobs.maximum-size:1000}") long maximumSize,
+            @Value("${hapi.fhir.validation.jobs.expire-after-write-ms:3600000}") long expireAfterWriteMillis,
+            @Value("${hapi.fhir.validation.jobs.max-wait-ms:30000}") long maxWaitMillis,
+            @Value("${hapi.fhir.validation.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.validationService = validationService;
+        this.admissionControl = admissionControl;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.maxWaitMillis = maxWaitMillis;
+        int size = threads > 0 ? threads : Math.max(1, validatorPool.getSize() / 2);
+        this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)), new JobThreadFactory());
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, jobs, "validation-jobs");
+        Gauge.builder("dgmp.validation.jobs.queued", executor, e -> e.getQueue().size())
+                .description("Validation jobs waiting for a job thread")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.jobs.running", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Validation jobs currently validated")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("dgmp.validation.jobs.wait")
+                .description("Time from submission until a job thread starts the validation")
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("dgmp.validation.jobs.latency")
+                .description("Time from submission until the job is finished")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("dgmp.validation.jobs.rejected")
+                .description("Job submissions rejected because the queue was full")
+                .register(meterRegistry);
+
+        log.info("Validation jobs: {} threads, maxQueued={}, maximumSize={}, expireAfterWrite={} ms",
+                size, maxQueued, maximumSize, expireAfterWriteMillis);
+    }
+
+    /**
+     * Reads the document and queues its validation. The stream is not closed.
+     *
+     * @param jsonContent UTF-8 encoded FHIR JSON
+     * @param contentLength Declared size of the document, or a negative value if unknown
+     * @param level The validation level, or {@code null} for the default level
+     * @return The queued job
+     * @throws PayloadTooLargeException if the document exceeds the maximum payload size
+     * @throws ValidationRejectedException if the job queue is full or the byte budget is exhausted
+     */
+    public ValidationJob submit(InputStream jsonContent, long contentLength, ValidationLevel level)
+            throws IOException {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw rejectFull();
+        }
+        ValidationAdmissionControl.Permit permit = admissionControl.reserve(contentLength);
+        try {
+            byte[] document = read(jsonContent);
+            ValidationJob job = new ValidationJob(UUID.randomUUID().toString(), level);
+            jobs.put(job.getId(), job);
+            try {
+                executor.execute(() -> run(job, document, permit));
+            } catch (RejectedExecutionException e) {
+                jobs.invalidate(job.getId());
+                throw rejectFull();
+            }
+            log.debug("Queued validation job {} ({} bytes)", job.getId(), document.length);
+            return job;
+        } catch (IOException | RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    private byte[] read(InputStream jsonContent) throws IOException {
+        PayloadInputStream payload = new PayloadInputStream(jsonContent, validationService.getMaxPayloadBytes(), null);
+        try {
+            return payload.readAllBytes();
+        } catch (IOException e) {
+            if (payload.isLimitExceeded()) {
+                throw new PayloadTooLargeException(validationService.getMaxPayloadBytes());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return The job, or {@code null} if it is unknown or expired
+     */
+    public ValidationJob get(String id) {
+        return jobs.getIfPresent(id);
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    private void run(ValidationJob job, byte[] document, ValidationAdmissionControl.Permit permit) {
+        job.start();
+        waitTimer.record(Duration.between(job.getSubmittedAt(), job.getStartedAt()));
+        try {
+            job.complete(validationService.validateJson(document, job.getLevel()));
+        } catch (RuntimeException e) {
+            log.warn("Validation job {} failed: {}", job.getId(), e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            permit.close();
+        }
+        latencyTimer.record(Duration.between(job.getSubmittedAt(), job.getCompletedAt()));
+        // Restart the expiry so finished results stay available for the full period
+        jobs.asMap().replace(job.getId(), job, job);
+    }
+
+    private ValidationRejectedException rejectFull() {
+        rejected.increment();
+        return new ValidationRejectedException("Validation job queue is full", retryAfterSeconds);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static class JobThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "validation-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.company.validation;
+
+/**
+ * Depth of a validation run. Each level is served by its own validator pool.
+ */
+public enum ValidationLevel {
+
+    /**
+     * Structure and cardinality against the base FHIR definitions only.
+     * EPA profiles are not applied and terminology bindings are not checked.
+     */
+    STRUCTURE,
+
+    /**
+     * EPA profile constraints without terminology binding checks
+     */
+    PROFILE,
+
+    /**
+     * EPA profiles including terminology bindings (the configured validator settings)
+     */
+    FULL_TERMINOLOGY
+}
@@ -0,0 +1,139 @@
+package com.company.validation;
+
+import com.company.fhir.EpaProfiles;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the validation phases.
+ *
+ * All meters are tagged with the detected profile and the outcome. Profiles outside
+ * the EPA Medication package are reported as "other" to keep tag cardinality bounded.
+ */
+@Component
+public class ValidationMetrics {
+
+    public static final String PHASE_PARSE = "parse";
+    public static final String PHASE_PRE_CHECK = "pre-check";
+    public static final String PHASE_INSTANCE_VALIDATION = "instance-validation";
+    public static final String PHASE_CONVERSION = "conversion";
+
+    public static final String OUTCOME_VALID = "valid";
+    public static final String OUTCOME_INVALID = "invalid";
+    public static final String OUTCOME_ERROR = "error";
+
+    public static final String TRUNCATED_ERRORS = "errors";
+    public static final String TRUNCATED_TIME = "time";
+
+    public static final String PROFILE_NONE = "none";
+    public static final String PROFILE_OTHER = "other";
+    public static final String PROFILE_UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    public ValidationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordPhase(String phase, String profile, String outcome, long nanos) {
+        Timer.builder("dgmp.validation.phase")
+                .description("Duration of a validation phase")
+                .tag("phase", phase)
+                .tag("profile", profile)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The size of the text encoded as UTF-8, counted without encoding it
+     */
+    public static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Records the shape of a validated document
+     *
+     * @param payloadSize Size of the JSON payload in UTF-8 bytes, or a negative value if validated from an object
+     * @param entryCount Number of Bundle entries, or a negative value if not a Bundle
+     */
+    public void recordDocument(String profile, String outcome, long payloadSize, int entryCount, int messageCount) {
+        if (payloadSize >= 0) {
+            summary("dgmp.validation.payload.size", "Size of the validated JSON payload", "bytes", profile, outcome)
+                    .record(payloadSize);
+        }
+        if (entryCount >= 0) {
+            summary("dgmp.validation.bundle.entries", "Number of entries of the validated Bundle", null, profile, outcome)
+                    .record(entryCount);
+        }
+        summary("dgmp.validation.messages", "Number of validation messages", null, profile, outcome)
+                .record(messageCount);
+    }
+
+    /**
+     * Counts a validation stopped early at the error or time limit
+     *
+     * @param reason {@link #TRUNCATED_ERRORS} or {@link #TRUNCATED_TIME}
+     */
+    public void recordTruncated(String profile, String reason) {
+        meterRegistry.counter("dgmp.validation.truncated", "profile", profile, "reason", reason).increment();
+    }
+
+    /**
+     * @return Short name of the first EPA profile in meta.profile, e.g. "epa-medication-bundle",
+     *         {@link #PROFILE_OTHER} if only other profiles are declared, {@link #PROFILE_NONE} if none
+     */
+    public static String profileTag(IBaseResource resource) {
+        List<? extends IPrimitiveType<String>> profiles = resource.getMeta().getProfile();
+        String tag = PROFILE_NONE;
+        for (IPrimitiveType<String> declared : profiles) {
+            String profile = declared.getValue();
+            if (profile == null) {
+                continue;
+            }
+            int bar = profile.indexOf('|');
+            if (bar >= 0) {
+                profile = profile.substring(0, bar);
+            }
+            if (EpaProfiles.ALL.contains(profile)) {
+                return profile.substring(EpaProfiles.BASE_URL.length());
+            }
+            tag = PROFILE_OTHER;
+        }
+        return tag;
+    }
+
+    private DistributionSummary summary(String name, String description, String baseUnit, String profile, String outcome) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tag("profile", profile)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
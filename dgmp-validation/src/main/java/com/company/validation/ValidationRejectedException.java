@@ -0,0 +1,21 @@
+package com.company.validation;
+
+/**
+ * Thrown when admission control sheds a validation request under load
+ */
+public class ValidationRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ValidationRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return Suggested delay before the client retries
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -9,10 +9,22 @@ import java.util.stream.Collectors;
 public class ValidationResponse {
     private final boolean valid;
     private final List<ValidationMessage> messages;
+    private final ValidationLevel level;
+    private final boolean truncated;
 
     public ValidationResponse(boolean valid, List<ValidationMessage> messages) {
+        this(valid, messages, null);
+    }
+
+    public ValidationResponse(boolean valid, List<ValidationMessage> messages, ValidationLevel level) {
+        this(valid, messages, level, false);
+    }
+
+    public ValidationResponse(boolean valid, List<ValidationMessage> messages, ValidationLevel level, boolean truncated) {
         this.valid = valid;
         this.messages = messages;
+        this.level = level;
+        this.truncated = truncated;
     }
 
     public static ValidationResponse error(String errorMessage) {
@@ -30,6 +42,20 @@ public class ValidationResponse {
         return messages;
     }
 
+    /**
+     * @return The level the resource was validated at, or {@code null} if validation did not run
+     */
+    public ValidationLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * @return Whether validation stopped early at the error or time limit, so the messages are incomplete
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
     public List<ValidationMessage> getErrors() {
         return messages.stream()
                 .filter(m -> "ERROR".equals(m.getSeverity()) || "FATAL".equals(m.getSeverity()))
@@ -51,7 +77,14 @@ public class ValidationResponse {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("Validation ").append(valid ? "SUCCESSFUL" : "FAILED").append("\n");
+        sb.append("Validation ").append(valid ? "SUCCESSFUL" : "FAILED");
+        if (level != null) {
+            sb.append(" (").append(level).append(")");
+        }
+        if (truncated) {
+            sb.append(" [truncated]");
+        }
+        sb.append("\n");
         sb.append("Total messages: ").append(messages.size()).append("\n");
 
         List<ValidationMessage> errors = getErrors();
@@ -0,0 +1,120 @@
+package com.company.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Cache of validation results keyed by payload fingerprint.
+ *
+ * Keys also contain the loaded package version and the validator settings,
+ * so results never outlive a change of either.
+ */
+public class ValidationResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationResultCache.class);
+
+    private final boolean enabled;
+    private final String contextKey;
+    private final Cache<String, ValidationResponse> cache;
+
+    public ValidationResultCache(boolean enabled,
+                                 long maximumSize,
+                                 long expireAfterWriteMillis,
+                                 String contextKey,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.contextKey = contextKey;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maximumSize : 0)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "validation-results");
+        log.info("Validation result cache {} (maximumSize={}, expireAfterWrite={} ms, context={})",
+                enabled ? "enabled" : "disabled", maximumSize, expireAfterWriteMillis, contextKey);
+    }
+
+    /**
+     * @param jsonContent The JSON payload
+     * @return Cache key for the payload, or {@code null} if caching is disabled
+     */
+    public String keyFor(String jsonContent) {
+        if (!enabled) {
+            return null;
+        }
+        return PayloadFingerprint.of(jsonContent) + "|" + contextKey;
+    }
+
+    /**
+     * @param jsonContent The UTF-8 encoded JSON payload
+     * @return Cache key for the payload, or {@code null} if caching is disabled
+     */
+    public String keyFor(byte[] jsonContent) {
+        if (!enabled) {
+            return null;
+        }
+        return PayloadFingerprint.of(jsonContent) + "|" + contextKey;
+    }
+
+    /**
+     * @return A fingerprint to feed while streaming a payload, or {@code null} if caching is disabled
+     */
+    PayloadFingerprint newFingerprint() {
+        return enabled ? new PayloadFingerprint() : null;
+    }
+
+    /**
+     * @param fingerprint A fingerprint fed with the complete payload, or {@code null}
+     * @return Cache key for the payload, or {@code null} if caching is disabled
+     */
+    String keyFor(PayloadFingerprint fingerprint) {
+        if (!enabled || fingerprint == null) {
+            return null;
+        }
+        return fingerprint.toHex() + "|" + contextKey;
+    }
+
+    /**
+     * @param key Cache key of a payload, or {@code null} if caching is disabled
+     * @return The key of the payload validated at the given level, or {@code null}
+     */
+    static String withLevel(String key, ValidationLevel level) {
+        return key == null ? null : key + "|" + level;
+    }
+
+    public ValidationResponse get(String key) {
+        return key == null ? null : cache.getIfPresent(key);
+    }
+
+    public void put(String key, ValidationResponse response) {
+        if (key != null) {
+            cache.put(key, response);
+        }
+    }
+
+    public void invalidateAll() {
+        long size = cache.estimatedSize();
+        cache.invalidateAll();
+        log.info("Validation result cache flushed ({} entries)", size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,11 @@
+package com.company.validation;
+
+/**
+ * Thrown into the instance validator once the validation time budget is used up
+ */
+class ValidationTimeExceededException extends RuntimeException {
+
+    ValidationTimeExceededException() {
+        super("Validation time budget exceeded", null, false, false);
+    }
+}
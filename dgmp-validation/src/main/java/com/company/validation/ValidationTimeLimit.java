@@ -0,0 +1,150 @@
+package com.company.validation;
+
+import ca.uhn.fhir.validation.ValidationResult;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the instance validation within the validation time budget.
+ *
+ * The instance validator has no cancellation hook, and after warm-up a STRUCTURE or PROFILE
+ * run finds everything in the caches of its worker context, so it may never reach a check of
+ * its {@link ValidationDeadlineSupport}. With a budget, each validation therefore runs on a
+ * run thread while the caller waits at most for the budget. At the deadline the run is expired,
+ * so its next support call fails, and its thread is interrupted, which ends blocking waits.
+ * The caller gets the time-out at once. The validator only returns to its pool once the run
+ * has ended, so a busy validator is never handed out and the pool utilization shows the CPU
+ * still in use.
+ *
+ * The run threads are bounded. Runs beyond that wait for a thread within their budget; a run
+ * still waiting at the deadline is dropped without ever starting.
+ *
+ * Without a budget, or for validators without deadline support, the validation runs inline.
+ */
+class ValidationTimeLimit implements AutoCloseable {
+
+    private final long budgetNanos;
+    private final ExecutorService runThreads;
+
+    /**
+     * @param budgetNanos Time budget of one validation, or 0 for no limit
+     * @param threads Maximum number of run threads
+     */
+    ValidationTimeLimit(long budgetNanos, int threads) {
+        this.budgetNanos = budgetNanos;
+        if (budgetNanos > 0) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new RunThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
+            this.runThreads = executor;
+        } else {
+            this.runThreads = null;
+        }
+    }
+
+    /**
+     * @return The validation result
+     * @throws ValidationTimeExceededException if the budget was used up
+     */
+    ValidationResult validate(PooledValidator pooled, IBaseResource resource) {
+        ValidationDeadlineSupport deadline = pooled.getDeadline();
+        if (runThreads == null || deadline == null) {
+            return pooled.getValidator().validateWithResult(resource);
+        }
+
+        CompletableFuture<ValidationResult> result = new CompletableFuture<>();
+        deadline.start(budgetNanos);
+        pooled.startRun();
+        // Claimed by whoever ends the run: the run thread once it starts, or the caller if it never did
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> run;
+        try {
+            run = runThreads.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    result.complete(pooled.getValidator().validateWithResult(resource));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    deadline.clear();
+                    pooled.endRun();
+                }
+            });
+        } catch (RuntimeException e) {
+            deadline.clear();
+            pooled.endRun();
+            throw e;
+        }
+
+        try {
+            ValidationResult validated = result.get(budgetNanos, TimeUnit.NANOSECONDS);
+            // The validator may swallow the exception thrown at the deadline and report a partial result
+            if (deadline.isExceeded()) {
+                throw new ValidationTimeExceededException();
+            }
+            return validated;
+        } catch (TimeoutException e) {
+            stop(run, claimed, pooled, deadline);
+            throw new ValidationTimeExceededException();
+        } catch (ExecutionException e) {
+            if (deadline.isExceeded()) {
+                throw new ValidationTimeExceededException();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            stop(run, claimed, pooled, deadline);
+            Thread.currentThread().interrupt();
+            throw new ValidationTimeExceededException();
+        }
+    }
+
+    private static void stop(Future<?> run, AtomicBoolean claimed, PooledValidator pooled,
+                             ValidationDeadlineSupport deadline) {
+        if (claimed.compareAndSet(false, true)) {
+            // Still waiting for a run thread
+            run.cancel(false);
+            deadline.clear();
+            pooled.endRun();
+            return;
+        }
+        deadline.expire();
+        run.cancel(true);
+    }
+
+    @Override
+    public void close() {
+        if (runThreads != null) {
+            runThreads.shutdownNow();
+        }
+    }
+
+    private static class RunThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "validation-run-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.company.validation;
+
+import com.company.fhir.EpaProfiles;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms up the validator pool before it receives traffic.
+ *
+ * Snapshot generation, StructureDefinition loading and the validation support
+ * caches are otherwise populated lazily by the first requests.
+ * Profile routes are warmed with the documents of their profile.
+ */
+@Service
+public class ValidationWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationWarmup.class);
+
+    private final ValidatorPools validatorPools;
+    private final ProfileRouter profileRouter;
+    private final IValidationSupport validationSupport;
+    private final FhirContext fhirContext;
+    private final Timer warmupTimer;
+    private volatile boolean complete;
+
+    public ValidationWarmup(ValidatorPools validatorPools,
+                            ProfileRouter profileRouter,
+                            IValidationSupport validationSupport,
+                            FhirContext fhirContext,
+                            MeterRegistry meterRegistry) {
+        this.validatorPools = validatorPools;
+        this.profileRouter = profileRouter;
+        this.validationSupport = validationSupport;
+        this.fhirContext = fhirContext;
+        this.warmupTimer = Timer.builder("dgmp.validation.warmup")
+                .description("Duration of the validation warm-up phase")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.warmup.complete", this, w -> w.isComplete() ? 1 : 0)
+                .description("1 once the validation warm-up phase has completed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Validates all documents on one pooled instance to populate the shared conformance
+     * and terminology caches, then the first document on every instance to initialize
+     * its own validator context. Uses the pool of the default validation level.
+     * Each profile route then fetches the dependency closure of its profile and validates
+     * the documents of its profile on every instance, or an empty resource declaring the
+     * profile if there are none. Validation results are discarded.
+     *
+     * @param documents FHIR JSON documents covering the profiles in use
+     * @return Whether the warm-up completed; after a failure the validators stay not ready
+     */
+    public boolean warmUp(List<String> documents) {
+        if (documents.isEmpty()) {
+            log.warn("No warm-up documents available, skipping validation warm-up");
+            complete = true;
+            return true;
+        }
+
+        log.info("Starting validation warm-up with {} documents", documents.size());
+        long start = System.nanoTime();
+        ValidatorPool validatorPool = validatorPools.get(validatorPools.getDefaultLevel());
+        try {
+            validatorPool.execute(pooled -> {
+                documents.forEach(document -> validateQuietly(pooled, document));
+                return null;
+            });
+            validatorPool.forEachInstance(pooled -> validateQuietly(pooled, documents.get(0)));
+            for (ProfileRouter.Route route : profileRouter.getRoutes()) {
+                warmUp(route, documents);
+            }
+        } catch (RuntimeException e) {
+            log.error("Validation warm-up failed after {} ms: {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.getMessage(), e);
+            return false;
+        }
+        long elapsed = System.nanoTime() - start;
+        warmupTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        complete = true;
+        log.info("Validation warm-up completed in {} ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return true;
+    }
+
+    private void warmUp(ProfileRouter.Route route, List<String> documents) {
+        int fetched = route.prefetchDependencies(validationSupport);
+        List<String> matching = documents.stream()
+                .filter(document -> route.getProfile().equals(profileOf(document)))
+                .toList();
+        if (matching.isEmpty()) {
+            // Without a document, validating against the profile still loads it into each validator context
+            String stub = profileStub(EpaProfiles.BASE_URL + route.getProfile());
+            matching = stub != null ? List.of(stub) : List.of();
+        }
+        log.info("Warming up profile route {} with {} documents, {} conformance resources fetched",
+                route.getProfile(), matching.size(), fetched);
+        List<String> warmupDocuments = matching;
+        route.getPools().get(validatorPools.getDefaultLevel())
+                .forEachInstance(pooled -> warmupDocuments.forEach(document -> validateQuietly(pooled, document)));
+    }
+
+    /**
+     * @return An empty resource of the profile's type declaring the profile, or {@code null} if the profile is unknown
+     */
+    private String profileStub(String profileUrl) {
+        if (!(validationSupport.fetchStructureDefinition(profileUrl) instanceof StructureDefinition definition)) {
+            log.warn("Profile {} not found, its route is not warmed up", profileUrl);
+            return null;
+        }
+        IBaseResource stub = fhirContext.getResourceDefinition(definition.getType()).newInstance();
+        stub.getMeta().addProfile(profileUrl);
+        return fhirContext.newJsonParser().encodeResourceToString(stub);
+    }
+
+    private String profileOf(String document) {
+        try {
+            return ValidationMetrics.profileTag(fhirContext.newJsonParser().parseResource(document));
+        } catch (Exception e) {
+            return ValidationMetrics.PROFILE_UNKNOWN;
+        }
+    }
+
+    /**
+     * Marks the warm-up as complete without running it
+     */
+    public void skip() {
+        log.info("Validation warm-up disabled");
+        complete = true;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private void validateQuietly(PooledValidator pooled, String document) {
+        try {
+            IBaseResource resource = fhirContext.newJsonParser().parseResource(document);
+            pooled.getValidator().validateWithResult(resource);
+        } catch (Exception e) {
+            log.debug("Warm-up validation failed: {}", e.getMessage());
+        }
+    }
+}
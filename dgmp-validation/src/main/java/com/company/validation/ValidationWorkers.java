@@ -0,0 +1,112 @@
+package com.company.validation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Platform threads running the CPU-heavy validation work of requests handled on virtual threads.
+ *
+ * Virtual threads are not preempted, so validations running on them would occupy all carrier
+ * threads and stall cheap requests like health checks. Work submitted from a virtual thread
+ * is therefore handed to a pool sized like the carrier pool, and the virtual thread waits
+ * unmounted. Work submitted from a platform thread runs inline, as does all work of
+ * {@link #inline()} workers used in the platform thread execution mode.
+ */
+public class ValidationWorkers implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationWorkers.class);
+
+    private final ThreadPoolExecutor executor;
+
+    private ValidationWorkers() {
+        this.executor = null;
+    }
+
+    /**
+     * @param threads Number of worker threads, 0 for the carrier parallelism of the virtual thread scheduler
+     */
+    public ValidationWorkers(int threads, MeterRegistry meterRegistry) {
+        int size = threads > 0 ? threads : carrierParallelism();
+        this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new WorkerThreadFactory());
+
+        Gauge.builder("dgmp.validation.workers.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Validation worker threads busy with requests from virtual threads")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.workers.queued", executor, e -> e.getQueue().size())
+                .description("Validations waiting for a worker thread")
+                .register(meterRegistry);
+        log.info("Created {} validation worker threads for virtual thread requests", size);
+    }
+
+    /**
+     * @return Workers running all work on the calling thread
+     */
+    public static ValidationWorkers inline() {
+        return new ValidationWorkers();
+    }
+
+    /**
+     * Runs the work on a worker thread if called from a virtual thread, otherwise inline
+     *
+     * @return The result of the work
+     */
+    public <T> T call(Supplier<T> work) {
+        if (executor == null || !Thread.currentThread().isVirtual()) {
+            return work.get();
+        }
+        try {
+            return CompletableFuture.supplyAsync(work, executor).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public int getSize() {
+        return executor != null ? executor.getCorePoolSize() : 0;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int carrierParallelism() {
+        String parallelism = System.getProperty("jdk.virtualThreadScheduler.parallelism");
+        return parallelism != null ? Integer.parseInt(parallelism) : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "validation-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.company.validation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of validators.
+ *
+ * All instances are created up front. Each request borrows one validator
+ * exclusively and returns it afterwards, so no FhirValidator is shared
+ * between concurrent requests. Documents are parsed before borrowing. The work with a
+ * borrowed validator runs through the pool's {@link ValidationWorkers}.
+ * A validator whose run was abandoned at the time limit counts as active
+ * until the run has actually ended.
+ */
+public class ValidatorPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidatorPool.class);
+
+    private final String name;
+    private final int size;
+    private final long acquireTimeoutMillis;
+    private final ValidationWorkers workers;
+    private final BlockingQueue<PooledValidator> idle;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+
+    public ValidatorPool(String name,
+                         int size,
+                         long acquireTimeoutMillis,
+                         Supplier<PooledValidator> factory,
+                         MeterRegistry meterRegistry) {
+        this(name, size, acquireTimeoutMillis, factory, ValidationWorkers.inline(), meterRegistry);
+    }
+
+    public ValidatorPool(String name,
+                         int size,
+                         long acquireTimeoutMillis,
+                         Supplier<PooledValidator> factory,
+                         ValidationWorkers workers,
+                         MeterRegistry meterRegistry) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Validator pool size must be at least 1, was " + size);
+        }
+        this.name = name;
+        this.size = size;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.workers = workers;
+        this.idle = new ArrayBlockingQueue<>(size);
+
+        log.info("Creating validator pool '{}' with {} instances", name, size);
+        for (int i = 0; i < size; i++) {
+            idle.add(factory.get());
+        }
+
+        Gauge.builder("dgmp.validation.pool.size", () -> this.size)
+                .tag("pool", name)
+                .description("Number of pooled validator instances")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.pool.active", active, AtomicInteger::get)
+                .tag("pool", name)
+                .description("Validator instances currently borrowed")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.pool.waiting", waiting, AtomicInteger::get)
+                .tag("pool", name)
+                .description("Threads waiting for a validator instance")
+                .register(meterRegistry);
+        Gauge.builder("dgmp.validation.pool.utilization", this, ValidatorPool::getUtilization)
+                .tag("pool", name)
+                .description("Fraction of validator instances currently borrowed")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("dgmp.validation.pool.wait")
+                .tag("pool", name)
+                .description("Time spent waiting for a validator instance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Borrows a validator, runs the given work with it and returns it to the pool
+     *
+     * @param work The work to run with the borrowed validator
+     * @return The result of the work
+     * @throws ValidatorPoolExhaustedException if no validator became available in time
+     */
+    public <T> T execute(Function<PooledValidator, T> work) {
+        PooledValidator validator = acquire();
+        try {
+            return workers.call(() -> work.apply(validator));
+        } finally {
+            release(validator);
+        }
+    }
+
+    /**
+     * Runs the given work once on every pooled instance, in parallel.
+     * Waits until all instances have been borrowed, so it blocks concurrent requests meanwhile.
+     *
+     * @param work The work to run with each validator
+     */
+    public void forEachInstance(Consumer<PooledValidator> work) {
+        List<PooledValidator> borrowed = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                borrowed.add(acquire());
+            }
+            borrowed.parallelStream().forEach(work);
+        } finally {
+            borrowed.forEach(this::release);
+        }
+    }
+
+    private PooledValidator acquire() {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        PooledValidator validator;
+        try {
+            validator = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidatorPoolExhaustedException("Interrupted while waiting for a validator", e);
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (validator == null) {
+            throw new ValidatorPoolExhaustedException(
+                    "No validator of pool '" + name + "' available within " + acquireTimeoutMillis + " ms");
+        }
+        active.incrementAndGet();
+        return validator;
+    }
+
+    /**
+     * Returns the validator once a validation run that outlived the request has ended
+     */
+    private void release(PooledValidator validator) {
+        validator.whenIdle().thenRun(() -> {
+            active.decrementAndGet();
+            idle.offer(validator);
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public ValidationWorkers getWorkers() {
+        return workers;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public double getUtilization() {
+        return (double) active.get() / size;
+    }
+}
@@ -0,0 +1,15 @@
+package com.company.validation;
+
+/**
+ * Thrown when no pooled validator becomes available within the acquire timeout
+ */
+public class ValidatorPoolExhaustedException extends RuntimeException {
+
+    public ValidatorPoolExhaustedException(String message) {
+        super(message);
+    }
+
+    public ValidatorPoolExhaustedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,78 @@
+package com.company.validation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link ValidatorPool} per {@link ValidationLevel}.
+ *
+ * The FULL_TERMINOLOGY level is served by the default pool. Pools of the other
+ * levels are created with the same size and workers on first use, so unused levels cost nothing.
+ * Their names are prefixed with the name of the default pool unless it is "default".
+ */
+public class ValidatorPools {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidatorPools.class);
+
+    private final FhirValidatorFactory factory;
+    private final MeterRegistry meterRegistry;
+    private final int size;
+    private final long acquireTimeoutMillis;
+    private final ValidationWorkers workers;
+    private final String namePrefix;
+    private final ValidationLevel defaultLevel;
+    private final Map<ValidationLevel, ValidatorPool> pools = new ConcurrentHashMap<>();
+
+    public ValidatorPools(ValidatorPool defaultPool,
+                          FhirValidatorFactory factory,
+                          MeterRegistry meterRegistry,
+                          long acquireTimeoutMillis,
+                          ValidationLevel defaultLevel) {
+        this.factory = factory;
+        this.meterRegistry = meterRegistry;
+        this.size = defaultPool.getSize();
+        this.workers = defaultPool.getWorkers();
+        this.namePrefix = "default".equals(defaultPool.getName()) ? "" : defaultPool.getName() + "-";
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.defaultLevel = defaultLevel;
+        pools.put(ValidationLevel.FULL_TERMINOLOGY, defaultPool);
+    }
+
+    /**
+     * @param level The validation level, or {@code null} for the default level
+     * @return The pool validating at the given level
+     */
+    public ValidatorPool get(ValidationLevel level) {
+        return pools.computeIfAbsent(resolve(level), this::createPool);
+    }
+
+    /**
+     * @return The given level, or the configured default level for {@code null}
+     */
+    public ValidationLevel resolve(ValidationLevel level) {
+        return level != null ? level : defaultLevel;
+    }
+
+    /**
+     * @return The number of validators in each pool
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public ValidationLevel getDefaultLevel() {
+        return defaultLevel;
+    }
+
+    private ValidatorPool createPool(ValidationLevel level) {
+        log.info("Creating validator pool for validation level {}", level);
+        return new ValidatorPool(
+                namePrefix + level.name().toLowerCase(Locale.ROOT), size, acquireTimeoutMillis, () -> factory.create(level), workers,
+                meterRegistry);
+    }
+}
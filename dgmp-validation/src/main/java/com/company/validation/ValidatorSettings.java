@@ -0,0 +1,76 @@
+package com.company.validation;
+
+import org.hl7.fhir.common.hapi.validation.validator.FhirInstanceValidator;
+
+/**
+ * Settings applied to each FhirInstanceValidator
+ */
+public final class ValidatorSettings {
+
+    private final boolean noTerminologyChecks;
+    private final boolean errorForUnknownProfiles;
+    private final boolean anyExtensionsAllowed;
+    private final boolean noExtensibleWarnings;
+
+    public ValidatorSettings(boolean noTerminologyChecks,
+                             boolean errorForUnknownProfiles,
+                             boolean anyExtensionsAllowed,
+                             boolean noExtensibleWarnings) {
+        this.noTerminologyChecks = noTerminologyChecks;
+        this.errorForUnknownProfiles = errorForUnknownProfiles;
+        this.anyExtensionsAllowed = anyExtensionsAllowed;
+        this.noExtensibleWarnings = noExtensibleWarnings;
+    }
+
+    /**
+     * Default settings for EPA Medication validation
+     */
+    public static ValidatorSettings defaults() {
+        return new ValidatorSettings(false, false, true, true);
+    }
+
+    /**
+     * @return A copy of these settings with terminology checks switched on or off
+     */
+    public ValidatorSettings withNoTerminologyChecks(boolean noTerminologyChecks) {
+        return new ValidatorSettings(noTerminologyChecks, errorForUnknownProfiles, anyExtensionsAllowed, noExtensibleWarnings);
+    }
+
+    public void applyTo(FhirInstanceValidator instanceValidator) {
+        instanceValidator.setNoTerminologyChecks(noTerminologyChecks);
+        instanceValidator.setErrorForUnknownProfiles(errorForUnknownProfiles);
+        instanceValidator.setAnyExtensionsAllowed(anyExtensionsAllowed);
+        instanceValidator.setNoExtensibleWarnings(noExtensibleWarnings);
+    }
+
+    public boolean isNoTerminologyChecks() {
+        return noTerminologyChecks;
+    }
+
+    public boolean isErrorForUnknownProfiles() {
+        return errorForUnknownProfiles;
+    }
+
+    public boolean isAnyExtensionsAllowed() {
+        return anyExtensionsAllowed;
+    }
+
+    public boolean isNoExtensibleWarnings() {
+        return noExtensibleWarnings;
+    }
+
+    /**
+     * @return Stable key identifying these settings, e.g. for result caching
+     */
+    public String getKey() {
+        return "noTerminologyChecks=" + noTerminologyChecks
+                + ";errorForUnknownProfiles=" + errorForUnknownProfiles
+                + ";anyExtensionsAllowed=" + anyExtensionsAllowed
+                + ";noExtensibleWarnings=" + noExtensibleWarnings;
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
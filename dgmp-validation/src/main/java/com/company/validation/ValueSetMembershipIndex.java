@@ -0,0 +1,199 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
+import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.ElementDefinition;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Membership index of the ValueSets bound by the EPA Medication profiles.
+ *
+ * At startup every required or extensible binding of the profiles is expanded once through
+ * the validation support chain and kept as a hash map per code system. Codes found in the index
+ * are answered in constant time. Everything else, i.e. codes outside the ValueSet, display
+ * mismatches and ValueSets that cannot be expanded in memory, falls through to the next
+ * support in the chain, so error messages are the same as without the index.
+ */
+public class ValueSetMembershipIndex implements IValidationSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(ValueSetMembershipIndex.class);
+
+    private final FhirContext fhirContext;
+    private volatile Map<String, Map<String, Map<String, String>>> byValueSet = Map.of();
+
+    public ValueSetMembershipIndex(FhirContext fhirContext) {
+        this.fhirContext = fhirContext;
+    }
+
+    /**
+     * Expands the ValueSets bound by the profiles below the given URL prefix
+     *
+     * @param chain The complete validation support chain, used to find profiles and expand ValueSets
+     */
+    public void load(IValidationSupport chain, String profileUrlPrefix) {
+        long start = System.currentTimeMillis();
+        Set<String> valueSetUrls = new TreeSet<>();
+        for (IBaseResource resource : chain.<IBaseResource>fetchAllStructureDefinitions()) {
+            if (resource instanceof StructureDefinition profile && profile.getUrl() != null
+                    && profile.getUrl().startsWith(profileUrlPrefix)) {
+                collectBindings(profile, valueSetUrls);
+            }
+        }
+
+        ValidationSupportContext context = new ValidationSupportContext(chain);
+        Map<String, Map<String, Map<String, String>>> index = new HashMap<>();
+        int codes = 0;
+        for (String url : valueSetUrls) {
+            Map<String, Map<String, String>> members = expand(chain, context, url);
+            if (members != null) {
+                index.put(url, members);
+                codes += members.values().stream().mapToInt(Map::size).sum();
+            }
+        }
+        byValueSet = index;
+        log.info("Indexed {} of {} bound ValueSets with {} codes in {} ms",
+                index.size(), valueSetUrls.size(), codes, System.currentTimeMillis() - start);
+    }
+
+    private static void collectBindings(StructureDefinition profile, Set<String> valueSetUrls) {
+        List<ElementDefinition> elements = profile.hasSnapshot()
+                ? profile.getSnapshot().getElement()
+                : profile.getDifferential().getElement();
+        for (ElementDefinition element : elements) {
+            ElementDefinition.ElementDefinitionBindingComponent binding = element.getBinding();
+            if (binding.hasValueSet()
+                    && (binding.getStrength() == Enumerations.BindingStrength.REQUIRED
+                    || binding.getStrength() == Enumerations.BindingStrength.EXTENSIBLE)) {
+                valueSetUrls.add(withoutVersion(binding.getValueSet()));
+            }
+        }
+    }
+
+    /**
+     * @return Display per code per system, or {@code null} if the ValueSet cannot be fully expanded
+     */
+    private Map<String, Map<String, String>> expand(IValidationSupport chain,
+                                                    ValidationSupportContext context,
+                                                    String url) {
+        try {
+            IBaseResource definition = chain.fetchValueSet(url);
+            if (definition == null) {
+                log.debug("ValueSet {} not found, not indexed", url);
+                return null;
+            }
+            ValueSetExpansionOutcome outcome = chain.expandValueSet(context, null, definition);
+            if (outcome == null || !(outcome.getValueSet() instanceof ValueSet expanded)) {
+                log.debug("ValueSet {} cannot be expanded in memory, not indexed: {}",
+                        url, outcome != null ? outcome.getError() : "no expansion");
+                return null;
+            }
+            ValueSet.ValueSetExpansionComponent expansion = expanded.getExpansion();
+            if (expansion.hasTotal() && expansion.getTotal() > expansion.getContains().size()) {
+                log.debug("Expansion of ValueSet {} is incomplete, not indexed", url);
+                return null;
+            }
+            Map<String, Map<String, String>> members = new HashMap<>();
+            addAll(expansion.getContains(), members);
+            return members;
+        } catch (RuntimeException e) {
+            log.debug("ValueSet {} cannot be expanded, not indexed: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void addAll(List<ValueSet.ValueSetExpansionContainsComponent> contains,
+                               Map<String, Map<String, String>> members) {
+        for (ValueSet.ValueSetExpansionContainsComponent concept : contains) {
+            if (concept.hasCode() && concept.hasSystem() && !concept.getAbstract() && !concept.getInactive()) {
+                members.computeIfAbsent(concept.getSystem(), system -> new HashMap<>())
+                        .put(concept.getCode(), concept.getDisplay());
+            }
+            addAll(concept.getContains(), members);
+        }
+    }
+
+    @Override
+    public boolean isValueSetSupported(ValidationSupportContext context, String valueSetUrl) {
+        return valueSetUrl != null && byValueSet.containsKey(withoutVersion(valueSetUrl));
+    }
+
+    @Override
+    public CodeValidationResult validateCode(ValidationSupportContext context,
+                                             ConceptValidationOptions options,
+                                             String codeSystem,
+                                             String code,
+                                             String display,
+                                             String valueSetUrl) {
+        if (valueSetUrl == null) {
+            return null;
+        }
+        return lookup(withoutVersion(valueSetUrl), codeSystem, code, display);
+    }
+
+    @Override
+    public CodeValidationResult validateCodeInValueSet(ValidationSupportContext context,
+                                                       ConceptValidationOptions options,
+                                                       String codeSystem,
+                                                       String code,
+                                                       String display,
+                                                       IBaseResource valueSet) {
+        if (!(valueSet instanceof ValueSet r4ValueSet) || !r4ValueSet.hasUrl()) {
+            return null;
+        }
+        return lookup(withoutVersion(r4ValueSet.getUrl()), codeSystem, code, display);
+    }
+
+    /**
+     * @return The result for an indexed member, or {@code null} to let the chain decide
+     */
+    private CodeValidationResult lookup(String valueSetUrl,
+                                        String codeSystem,
+                                        String code,
+                                        String display) {
+        Map<String, Map<String, String>> members = byValueSet.get(valueSetUrl);
+        if (members == null || codeSystem == null || code == null) {
+            return null;
+        }
+        Map<String, String> codes = members.get(withoutVersion(codeSystem));
+        if (codes == null || !codes.containsKey(code)) {
+            return null;
+        }
+        String indexedDisplay = codes.get(code);
+        if (display != null && indexedDisplay != null && !display.equals(indexedDisplay)) {
+            return null;
+        }
+        return new CodeValidationResult()
+                .setCode(code)
+                .setDisplay(indexedDisplay);
+    }
+
+    private static String withoutVersion(String url) {
+        int bar = url.indexOf('|');
+        return bar >= 0 ? url.substring(0, bar) : url;
+    }
+
+    /**
+     * @return Number of indexed ValueSets
+     */
+    public int size() {
+        return byValueSet.size();
+    }
+
+    @Override
+    public FhirContext getFhirContext() {
+        return fhirContext;
+    }
+}
@@ -0,0 +1,111 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Composition;
+import org.hl7.fhir.r4.model.MedicationStatement;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentBundlePreValidatorTest {
+
+    private static final String PATIENT = "urn:uuid:5b1a2f4e-0c55-4b8e-9d45-8f1c3e0a7b21";
+
+    private final DocumentBundlePreValidator preValidator =
+            new DocumentBundlePreValidator(FhirContext.forR4Cached(), true, true);
+
+    @Test
+    void acceptsValidDocumentReferencingLaterEntries() {
+        assertThat(preValidator.check(document())).isEmpty();
+    }
+
+    @Test
+    void requiresDocumentType() {
+        Bundle bundle = document().setType(Bundle.BundleType.COLLECTION);
+
+        assertThat(locations(preValidator.check(bundle))).containsExactly("Bundle.type");
+    }
+
+    @Test
+    void requiresProfile() {
+        Bundle bundle = document();
+        bundle.getMeta().getProfile().clear();
+
+        assertThat(locations(preValidator.check(bundle))).containsExactly("Bundle.meta.profile");
+    }
+
+    @Test
+    void requiresCompositionFirst() {
+        Bundle bundle = document();
+        Bundle.BundleEntryComponent composition = bundle.getEntry().remove(0);
+        bundle.getEntry().add(composition);
+
+        assertThat(locations(preValidator.check(bundle))).containsExactly("Bundle.entry[0]");
+    }
+
+    @Test
+    void reportsUnresolvedReference() {
+        Bundle bundle = document();
+        addEntry(bundle, null, new MedicationStatement().setSubject(new Reference("urn:uuid:unknown")));
+
+        List<ValidationMessage> errors = preValidator.check(bundle);
+
+        assertThat(locations(errors)).containsExactly("Bundle.entry[2].resource");
+        assertThat(errors.get(0).getMessage()).contains("urn:uuid:unknown");
+    }
+
+    @Test
+    void resolvesRelativeReferencesToRestfulFullUrls() {
+        Bundle bundle = document();
+        addEntry(bundle, "https://example.org/fhir/Patient/123", new Patient());
+        addEntry(bundle, null, new MedicationStatement().setSubject(new Reference("Patient/123")));
+
+        assertThat(preValidator.check(bundle)).isEmpty();
+    }
+
+    @Test
+    void doesNotResolveRelativeReferencesToUuidFullUrls() {
+        Bundle bundle = document();
+        addEntry(bundle, null, new MedicationStatement().setSubject(new Reference("Patient/5b1a2f4e")));
+
+        assertThat(locations(preValidator.check(bundle))).containsExactly("Bundle.entry[2].resource");
+    }
+
+    @Test
+    void ignoresContainedReferencesAndOtherResources() {
+        Bundle bundle = document();
+        addEntry(bundle, null, new MedicationStatement().setSubject(new Reference("#med")));
+
+        assertThat(preValidator.check(bundle)).isEmpty();
+        assertThat(preValidator.check(new Patient())).isEmpty();
+    }
+
+    @Test
+    void passesEverythingWhenDisabled() {
+        DocumentBundlePreValidator disabled = new DocumentBundlePreValidator(FhirContext.forR4Cached(), false, true);
+
+        assertThat(disabled.check(new Bundle().setType(Bundle.BundleType.COLLECTION))).isEmpty();
+    }
+
+    private static Bundle document() {
+        Bundle bundle = new Bundle().setType(Bundle.BundleType.DOCUMENT);
+        bundle.getMeta().addProfile("https://example.org/StructureDefinition/document");
+        addEntry(bundle, "urn:uuid:composition", new Composition().setSubject(new Reference(PATIENT)));
+        addEntry(bundle, PATIENT, new Patient());
+        return bundle;
+    }
+
+    private static void addEntry(Bundle bundle, String fullUrl, Resource resource) {
+        bundle.addEntry().setFullUrl(fullUrl).setResource(resource);
+    }
+
+    private static List<String> locations(List<ValidationMessage> messages) {
+        return messages.stream().map(ValidationMessage::getLocation).toList();
+    }
+}
@@ -0,0 +1,92 @@
+package com.company.validation;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalPackageStoreValidationSupportTest {
+
+    private static final String PACKAGE = "de.test.epa";
+    private static final String URL = "https://example.org/StructureDefinition/test-profile";
+
+    @TempDir
+    static Path store;
+
+    private static LocalPackageStoreValidationSupport support;
+
+    @BeforeAll
+    static void createStore() throws IOException {
+        for (String version : new String[] {"1.9.2", "1.10.0", "1.10.0-ballot"}) {
+            Path packageDirectory = Files.createDirectories(store.resolve(PACKAGE + "-" + version).resolve("package"));
+            Files.writeString(packageDirectory.resolve("package.json"),
+                    "{\"name\":\"" + PACKAGE + "\",\"version\":\"" + version + "\"}");
+            Files.writeString(packageDirectory.resolve("StructureDefinition-test-profile.json"),
+                    "{\"resourceType\":\"StructureDefinition\",\"url\":\"" + URL + "\",\"version\":\"" + version
+                            + "\",\"name\":\"TestProfile\",\"status\":\"active\",\"kind\":\"resource\","
+                            + "\"abstract\":false,\"type\":\"Patient\"}");
+        }
+        support = LocalPackageStoreValidationSupport.open(FhirContext.forR4Cached(), store);
+    }
+
+    @Test
+    void comparesVersionsNumerically() {
+        assertThat(LocalPackageStoreValidationSupport.compareVersions("1.10.0", "1.9.2")).isPositive();
+        assertThat(LocalPackageStoreValidationSupport.compareVersions("1.9.2", "1.10.0")).isNegative();
+        assertThat(LocalPackageStoreValidationSupport.compareVersions("1.0.3", "1.0.3")).isZero();
+    }
+
+    @Test
+    void ranksPreReleasesBelowTheRelease() {
+        assertThat(LocalPackageStoreValidationSupport.compareVersions("1.10.0-ballot", "1.10.0")).isNegative();
+        assertThat(LocalPackageStoreValidationSupport.compareVersions("1.10.0.1", "1.10.0")).isPositive();
+        assertThat(LocalPackageStoreValidationSupport.compareVersions("1.10.0-ballot", "1.9.2")).isPositive();
+    }
+
+    @Test
+    void resolvesUnversionedCanonicalToHighestVersion() {
+        assertThat(versionOf(support.fetchStructureDefinition(URL))).isEqualTo("1.10.0");
+    }
+
+    @Test
+    void resolvesVersionedCanonicalExactly() {
+        assertThat(versionOf(support.fetchStructureDefinition(URL + "|1.9.2"))).isEqualTo("1.9.2");
+        assertThat(support.fetchStructureDefinition(URL + "|2.0.0")).isNull();
+    }
+
+    @Test
+    void resolvesUnversionedCanonicalToPinnedPackageVersion() {
+        LocalPackageStoreValidationSupport pinned = support.withPackageVersion(PACKAGE, "1.9.2");
+
+        assertThat(versionOf(pinned.fetchStructureDefinition(URL))).isEqualTo("1.9.2");
+        assertThat(pinned.hasPackage(PACKAGE, "1.10.0")).isFalse();
+    }
+
+    @Test
+    void requiresPresentPackage() {
+        support.requirePackage(PACKAGE, "1.10.0");
+
+        assertThatThrownBy(() -> support.requirePackage(PACKAGE, "2.0.0"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(PACKAGE + "#2.0.0");
+    }
+
+    @Test
+    void failsForMissingStore() {
+        assertThatThrownBy(() -> LocalPackageStoreValidationSupport.open(FhirContext.forR4Cached(), store.resolve("missing")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static String versionOf(Object resource) {
+        assertThat(resource).isInstanceOf(StructureDefinition.class);
+        return ((StructureDefinition) resource).getVersion();
+    }
+}
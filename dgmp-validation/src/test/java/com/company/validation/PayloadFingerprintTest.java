@@ -0,0 +1,50 @@
+package com.company.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadFingerprintTest {
+
+    @Test
+    void ignoresWhitespaceBetweenTokens() {
+        String compact = "{\"resourceType\":\"Bundle\",\"entry\":[{\"id\":1}]}";
+        String pretty = "{\n  \"resourceType\" : \"Bundle\",\r\n\t\"entry\": [ { \"id\": 1 } ]\n}";
+
+        assertThat(PayloadFingerprint.of(pretty)).isEqualTo(PayloadFingerprint.of(compact));
+    }
+
+    @Test
+    void keepsWhitespaceWithinStrings() {
+        assertThat(PayloadFingerprint.of("{\"text\":\"a b\"}"))
+                .isNotEqualTo(PayloadFingerprint.of("{\"text\":\"ab\"}"));
+    }
+
+    @Test
+    void keepsWhitespaceAfterEscapedQuotes() {
+        assertThat(PayloadFingerprint.of("{\"text\":\"say \\\" hi\"}"))
+                .isNotEqualTo(PayloadFingerprint.of("{\"text\":\"say \\\"hi\"}"));
+    }
+
+    @Test
+    void matchesAcrossChunkBoundaries() {
+        String json = "{\"text\":\"" + "x y ".repeat(5000) + "\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        PayloadFingerprint fingerprint = new PayloadFingerprint();
+        for (int offset = 0; offset < bytes.length; offset += 7) {
+            fingerprint.update(bytes, offset, Math.min(7, bytes.length - offset));
+        }
+
+        assertThat(fingerprint.toHex()).isEqualTo(PayloadFingerprint.of(json));
+    }
+
+    @Test
+    void hashesStringsAsUtf8() {
+        String json = "{\"name\":\"Müller\"}";
+
+        assertThat(PayloadFingerprint.of(json)).isEqualTo(PayloadFingerprint.of(json.getBytes(StandardCharsets.UTF_8)));
+        assertThat(PayloadFingerprint.of(json)).hasSize(64);
+    }
+}
@@ -0,0 +1,146 @@
+package com.company.validation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ValidationAdmissionControlTest {
+
+    private static final long MAX_PAYLOAD_BYTES = 1000;
+
+    private static ValidationAdmissionControl admission(int maxConcurrent, long maxInFlightBytes, int maxQueued) {
+        return admission(true, maxConcurrent, maxInFlightBytes, maxQueued, 2);
+    }
+
+    private static ValidationAdmissionControl admission(boolean enabled, int maxConcurrent, long maxInFlightBytes,
+                                                        int maxQueued, int poolSize) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ValidatorPool pool = new ValidatorPool("test", poolSize, 100, () -> new PooledValidator(null), meterRegistry);
+        return new ValidationAdmissionControl(meterRegistry, pool, enabled, maxConcurrent, maxInFlightBytes,
+                maxQueued, 50, 3, MAX_PAYLOAD_BYTES);
+    }
+
+    @Test
+    void accountsRequestWithoutContentLengthWithPayloadLimit() {
+        ValidationAdmissionControl admission = admission(4, 10_000, 10);
+
+        try (ValidationAdmissionControl.Permit permit = admission.acquire(-1)) {
+            assertThat(admission.getInFlightBytes()).isEqualTo(MAX_PAYLOAD_BYTES);
+            assertThat(admission.getActive()).isEqualTo(1);
+        }
+        assertThat(admission.getInFlightBytes()).isZero();
+        assertThat(admission.getActive()).isZero();
+    }
+
+    @Test
+    void capsDeclaredLengthAtPayloadLimit() {
+        ValidationAdmissionControl admission = admission(4, 10_000, 10);
+
+        try (ValidationAdmissionControl.Permit small = admission.acquire(200);
+             ValidationAdmissionControl.Permit large = admission.acquire(5000)) {
+            assertThat(admission.getInFlightBytes()).isEqualTo(200 + MAX_PAYLOAD_BYTES);
+        }
+        assertThat(admission.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    void rejectsRequestsBeyondByteBudget() {
+        ValidationAdmissionControl admission = admission(4, 1500, 10);
+
+        try (ValidationAdmissionControl.Permit permit = admission.acquire(-1)) {
+            assertThatThrownBy(() -> admission.acquire(-1))
+                    .isInstanceOf(ValidationRejectedException.class)
+                    .extracting(e -> ((ValidationRejectedException) e).getRetryAfterSeconds())
+                    .isEqualTo(3L);
+            admission.acquire(500).close();
+        }
+    }
+
+    @Test
+    void admitsRequestAboveByteBudgetAlone() {
+        ValidationAdmissionControl admission = admission(4, 100, 10);
+
+        try (ValidationAdmissionControl.Permit permit = admission.acquire(-1)) {
+            assertThat(admission.getInFlightBytes()).isEqualTo(MAX_PAYLOAD_BYTES);
+            assertThatThrownBy(() -> admission.acquire(10)).isInstanceOf(ValidationRejectedException.class);
+        }
+    }
+
+    @Test
+    void reservesBytesWithoutSlot() {
+        ValidationAdmissionControl admission = admission(1, 10_000, 10);
+
+        try (ValidationAdmissionControl.Permit job = admission.reserve(-1);
+             ValidationAdmissionControl.Permit request = admission.acquire(100)) {
+            assertThat(admission.getActive()).isEqualTo(1);
+            assertThat(admission.getInFlightBytes()).isEqualTo(MAX_PAYLOAD_BYTES + 100);
+        }
+    }
+
+    @Test
+    void defaultsConcurrentValidationsToPoolSize() {
+        ValidationAdmissionControl admission = admission(true, 0, 10_000, 10, 2);
+
+        try (ValidationAdmissionControl.Permit first = admission.acquire(10);
+             ValidationAdmissionControl.Permit second = admission.acquire(10)) {
+            assertThatThrownBy(() -> admission.acquire(10)).isInstanceOf(ValidationRejectedException.class);
+        }
+    }
+
+    @Test
+    void rejectsAtOnceWhenQueueIsFull() {
+        ValidationAdmissionControl admission = admission(1, 10_000, 0);
+
+        try (ValidationAdmissionControl.Permit permit = admission.acquire(10)) {
+            assertThatThrownBy(() -> admission.acquire(10))
+                    .isInstanceOf(ValidationRejectedException.class)
+                    .hasMessageContaining("queued");
+        }
+    }
+
+    @Test
+    void waitsWithoutTimeoutUntilReleased() throws Exception {
+        ValidationAdmissionControl admission = admission(1, 10_000, 10);
+        ValidationAdmissionControl.Permit first = admission.acquire(10);
+
+        CompletableFuture<ValidationAdmissionControl.Permit> second =
+                CompletableFuture.supplyAsync(() -> admission.acquireWithoutTimeout(10));
+        Thread.sleep(200);
+        assertThat(second).isNotDone();
+
+        first.close();
+        second.get(5, TimeUnit.SECONDS).close();
+        assertThat(admission.getActive()).isZero();
+        assertThat(admission.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    void releasesPermitOnlyOnce() {
+        ValidationAdmissionControl admission = admission(4, 10_000, 10);
+        ValidationAdmissionControl.Permit first = admission.acquire(100);
+        ValidationAdmissionControl.Permit second = admission.acquire(100);
+
+        first.close();
+        first.close();
+
+        assertThat(admission.getInFlightBytes()).isEqualTo(100);
+        assertThat(admission.getActive()).isEqualTo(1);
+        second.close();
+    }
+
+    @Test
+    void accountsNothingWhenDisabled() {
+        ValidationAdmissionControl admission = admission(false, 1, 1, 0, 1);
+
+        try (ValidationAdmissionControl.Permit first = admission.acquire(-1);
+             ValidationAdmissionControl.Permit second = admission.acquire(-1)) {
+            assertThat(admission.getActive()).isZero();
+            assertThat(admission.getInFlightBytes()).isZero();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.company.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValidationMetricsTest {
+
+    @Test
+    void countsUtf8Bytes() {
+        for (String text : new String[] {"", "{\"a\":1}", "Müller", "€ 12,50", "💊 Tablette"}) {
+            assertThat(ValidationMetrics.utf8Length(text))
+                    .as(text)
+                    .isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+}
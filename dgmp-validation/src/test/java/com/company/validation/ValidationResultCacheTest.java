@@ -0,0 +1,74 @@
+package com.company.validation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValidationResultCacheTest {
+
+    private static final String JSON = "{\"resourceType\":\"Bundle\"}";
+
+    private static ValidationResultCache cache(boolean enabled, String contextKey) {
+        return new ValidationResultCache(enabled, 100, 60_000, contextKey, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void keyCombinesFingerprintAndContext() {
+        ValidationResultCache cache = cache(true, "epa#1.0.3|settings");
+
+        assertThat(cache.keyFor(JSON)).isEqualTo(PayloadFingerprint.of(JSON) + "|epa#1.0.3|settings");
+    }
+
+    @Test
+    void keyDependsOnContext() {
+        assertThat(cache(true, "epa#1.0.3").keyFor(JSON)).isNotEqualTo(cache(true, "epa#1.0.4").keyFor(JSON));
+    }
+
+    @Test
+    void keysOfStringBytesAndStreamAgree() {
+        ValidationResultCache cache = cache(true, "context");
+        byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+        PayloadFingerprint streamed = cache.newFingerprint();
+        streamed.update(bytes, 0, bytes.length);
+
+        assertThat(cache.keyFor(bytes)).isEqualTo(cache.keyFor(JSON));
+        assertThat(cache.keyFor(streamed)).isEqualTo(cache.keyFor(JSON));
+    }
+
+    @Test
+    void keyEndsWithValidationLevel() {
+        ValidationResultCache cache = cache(true, "context");
+        String key = cache.keyFor(JSON);
+
+        assertThat(ValidationResultCache.withLevel(key, ValidationLevel.PROFILE)).isEqualTo(key + "|PROFILE");
+        assertThat(ValidationResultCache.withLevel(key, ValidationLevel.STRUCTURE))
+                .isNotEqualTo(ValidationResultCache.withLevel(key, ValidationLevel.FULL_TERMINOLOGY));
+        assertThat(ValidationResultCache.withLevel(null, ValidationLevel.PROFILE)).isNull();
+    }
+
+    @Test
+    void disabledCacheHasNoKeys() {
+        ValidationResultCache cache = cache(false, "context");
+
+        assertThat(cache.keyFor(JSON)).isNull();
+        assertThat(cache.keyFor(JSON.getBytes(StandardCharsets.UTF_8))).isNull();
+        assertThat(cache.newFingerprint()).isNull();
+        assertThat(cache.keyFor((PayloadFingerprint) null)).isNull();
+    }
+
+    @Test
+    void returnsStoredResponse() {
+        ValidationResultCache cache = cache(true, "context");
+        ValidationResponse response = new ValidationResponse(true, List.of());
+        String key = cache.keyFor(JSON);
+
+        cache.put(key, response);
+
+        assertThat(cache.get(key)).isSameAs(response);
+        assertThat(cache.get(null)).isNull();
+    }
+}
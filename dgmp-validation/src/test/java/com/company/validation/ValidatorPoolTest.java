@@ -0,0 +1,113 @@
+package com.company.validation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ValidatorPoolTest {
+
+    private static ValidatorPool pool(int size, long acquireTimeoutMillis) {
+        return new ValidatorPool("test", size, acquireTimeoutMillis, () -> new PooledValidator(null),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void returnsValidatorAfterWork() {
+        ValidatorPool pool = pool(1, 100);
+
+        PooledValidator first = pool.execute(pooled -> {
+            assertThat(pool.getActive()).isEqualTo(1);
+            return pooled;
+        });
+        PooledValidator second = pool.execute(pooled -> pooled);
+
+        assertThat(second).isSameAs(first);
+        assertThat(pool.getActive()).isZero();
+    }
+
+    @Test
+    void returnsValidatorWhenWorkFails() {
+        ValidatorPool pool = pool(1, 100);
+
+        assertThatThrownBy(() -> pool.execute(pooled -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(pool.getActive()).isZero();
+        String result = pool.execute(pooled -> "done");
+        assertThat(result).isEqualTo("done");
+    }
+
+    @Test
+    void failsWhenNoValidatorBecomesAvailable() throws Exception {
+        ValidatorPool pool = pool(1, 50);
+        CountDownLatch borrowed = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> pool.execute(pooled -> {
+            borrowed.countDown();
+            await(finish);
+            return null;
+        }));
+        assertThat(borrowed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> pool.execute(pooled -> null))
+                .isInstanceOf(ValidatorPoolExhaustedException.class)
+                .hasMessageContaining("'test'");
+
+        finish.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        String result = pool.execute(pooled -> "done");
+        assertThat(result).isEqualTo("done");
+    }
+
+    @Test
+    void keepsValidatorUntilItsRunHasEnded() {
+        ValidatorPool pool = pool(1, 50);
+        PooledValidator running = pool.execute(pooled -> {
+            pooled.startRun();
+            return pooled;
+        });
+
+        assertThat(pool.getActive()).isEqualTo(1);
+        assertThatThrownBy(() -> pool.execute(pooled -> null))
+                .isInstanceOf(ValidatorPoolExhaustedException.class);
+
+        running.endRun();
+        assertThat(pool.getActive()).isZero();
+        PooledValidator returned = pool.execute(pooled -> pooled);
+        assertThat(returned).isSameAs(running);
+    }
+
+    @Test
+    void runsWorkOnEveryInstance() {
+        ValidatorPool pool = pool(3, 100);
+        Set<PooledValidator> visited = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        pool.forEachInstance(visited::add);
+
+        assertThat(visited).hasSize(3);
+        assertThat(pool.getActive()).isZero();
+    }
+
+    @Test
+    void rejectsEmptyPool() {
+        assertThatThrownBy(() -> pool(0, 100)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}